@@ -0,0 +1,71 @@
+package com.example.newsfeedapp;
+
+import android.os.SystemClock;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that recreating the feed, as a rotation does, shows the news already loaded without
+ * requesting them again. Run on a device with {@code ./gradlew connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RotationTest {
+
+    private static final long LOAD_TIMEOUT_MILLIS = 30 * 1000;
+
+    @Test
+    public void recreate_doesNotFetchFeedAgain() {
+        RequestExecutor requestExecutor = RequestExecutor.getInstance(
+                InstrumentationRegistry.getInstrumentation().getTargetContext());
+        ActivityScenario<NewsActivity> scenario = ActivityScenario.launch(NewsActivity.class);
+        waitUntilLoaded(scenario);
+        int attempts = requestExecutor.getAttemptCount();
+        int rows = getRowCount(scenario);
+
+        scenario.recreate();
+        waitUntilLoaded(scenario);
+        SystemClock.sleep(1000);
+
+        assertEquals(attempts, requestExecutor.getAttemptCount());
+        assertEquals(rows, getRowCount(scenario));
+        scenario.close();
+    }
+
+    private static void waitUntilLoaded(ActivityScenario<NewsActivity> scenario) {
+        final boolean[] refreshing = {true};
+        long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while (refreshing[0] && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(250);
+            scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+                @Override
+                public void perform(NewsActivity activity) {
+                    SwipeRefreshLayout swipeContainer = activity.findViewById(R.id.swipeContainer);
+                    refreshing[0] = swipeContainer.isRefreshing();
+                }
+            });
+        }
+        assertFalse(refreshing[0]);
+    }
+
+    private static int getRowCount(ActivityScenario<NewsActivity> scenario) {
+        final int[] count = new int[1];
+        scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+            @Override
+            public void perform(NewsActivity activity) {
+                RecyclerView list = activity.findViewById(R.id.list_news);
+                count[0] = list.getAdapter().getItemCount();
+            }
+        });
+        return count[0];
+    }
+}
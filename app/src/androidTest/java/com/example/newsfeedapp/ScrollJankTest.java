@@ -0,0 +1,150 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the frames of scrolling through a feed of 200 news, run on a device with
+ * {@code ./gradlew connectedAndroidTest} and read the result from logcat. The feed is scrolled
+ * with the text of the rows prepared in the background and without, to compare the bind times.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScrollJankTest {
+
+    private static final String LOG_TAG = ScrollJankTest.class.getSimpleName();
+    private static final int NEWS_COUNT = 200;
+    private static final long SCROLL_TIMEOUT_MILLIS = 60 * 1000;
+    private static final long LOAD_TIMEOUT_MILLIS = 30 * 1000;
+
+    private SharedPreferences mPreferences;
+    private String mPrecomputeTextKey;
+    // Whether the user had set the stage, and to what, restored after the test
+    private boolean mHadPrecomputeText;
+    private boolean mPrecomputeText;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        mPrecomputeTextKey = context.getString(R.string.settings_precompute_text_key);
+        mHadPrecomputeText = mPreferences.contains(mPrecomputeTextKey);
+        mPrecomputeText = mPreferences.getBoolean(mPrecomputeTextKey, false);
+    }
+
+    @After
+    public void tearDown() {
+        if (mHadPrecomputeText) {
+            mPreferences.edit().putBoolean(mPrecomputeTextKey, mPrecomputeText).commit();
+        } else {
+            mPreferences.edit().remove(mPrecomputeTextKey).commit();
+        }
+    }
+
+    @Test
+    public void scrollThroughFeed_textPrecomputed() {
+        scrollThroughFeed(true);
+    }
+
+    @Test
+    public void scrollThroughFeed_textBoundOnMainThread() {
+        scrollThroughFeed(false);
+    }
+
+    private void scrollThroughFeed(boolean precomputeText) {
+        mPreferences.edit().putBoolean(mPrecomputeTextKey, precomputeText).commit();
+
+        final List<News> news = new ArrayList<>();
+        for (int i = 0; i < NEWS_COUNT; i++) {
+            // Trail texts of the API hold HTML
+            news.add(new News(null, "Headline of article " + i,
+                    "<p>Trail text of <strong>article " + i + "</strong>, long enough to wrap over a couple of "
+                            + "lines of the row, <a href=\"https://www.theguardian.com\">with a link</a></p>",
+                    "Reporter " + i, "World news", System.currentTimeMillis() - i * 10 * 60 * 1000L,
+                    "https://www.theguardian.com/world/2020/jan/01/article-" + i));
+        }
+
+        ActivityScenario<NewsActivity> scenario = ActivityScenario.launch(NewsActivity.class);
+        // Let the load the activity starts finish, so neither it nor the storing of its news
+        // runs during the scroll. Showing the news then cancels any load of the feed left
+        waitUntilLoaded(scenario);
+        scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+            @Override
+            public void perform(NewsActivity activity) {
+                activity.showNews(news);
+            }
+        });
+        SystemClock.sleep(500);
+        Metrics.BIND_MICROS.reset();
+
+        final RecyclerView[] list = new RecyclerView[1];
+        scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+            @Override
+            public void perform(NewsActivity activity) {
+                list[0] = activity.findViewById(R.id.list_news);
+                list[0].smoothScrollToPosition(NEWS_COUNT - 1);
+            }
+        });
+
+        final boolean[] idle = new boolean[1];
+        long deadline = SystemClock.uptimeMillis() + SCROLL_TIMEOUT_MILLIS;
+        while (!idle[0] && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(250);
+            scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+                @Override
+                public void perform(NewsActivity activity) {
+                    idle[0] = list[0].getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+                }
+            });
+        }
+
+        final FrameStats[] stats = new FrameStats[1];
+        scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+            @Override
+            public void perform(NewsActivity activity) {
+                assertNotNull(activity.getJankMonitor());
+                stats[0] = activity.getJankMonitor().getTotalStats();
+            }
+        });
+        Log.i(LOG_TAG, "Scrolling " + NEWS_COUNT + " news, text precomputed " + precomputeText + ": " + stats[0]
+                + ", " + Metrics.BIND_MICROS);
+        assertTrue(stats[0].getFrameCount() > 0);
+        scenario.close();
+    }
+
+    private static void waitUntilLoaded(ActivityScenario<NewsActivity> scenario) {
+        final boolean[] refreshing = {true};
+        long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while (refreshing[0] && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(250);
+            scenario.onActivity(new ActivityScenario.ActivityAction<NewsActivity>() {
+                @Override
+                public void perform(NewsActivity activity) {
+                    SwipeRefreshLayout swipeContainer = activity.findViewById(R.id.swipeContainer);
+                    refreshing[0] = swipeContainer.isRefreshing();
+                }
+            });
+        }
+        assertFalse(refreshing[0]);
+    }
+}
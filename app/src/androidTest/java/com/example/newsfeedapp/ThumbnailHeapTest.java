@@ -0,0 +1,71 @@
+package com.example.newsfeedapp;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Decodes JPEG renditions of a 1000x600 thumbnail with the {@link BitmapDecoder} on a device,
+ * where BitmapFactory is the platform one, and checks the heap they hold against decoding the
+ * 1000px rendition at full size as ARGB_8888, as every thumbnail was before.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailHeapTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Test
+    public void retainedHeapPerPage_drops() {
+        long before = PAGE_SIZE * 1000 * 600 * BitmapDecoder.BYTES_PER_PIXEL_ARGB_8888;
+
+        // On a 1080px wide list the 1000px rendition is still needed, but as RGB_565
+        Bitmap wideList = decode(1080);
+        assertSize(1000, 600, wideList);
+        assertEquals(before / 2, PAGE_SIZE * wideList.getByteCount());
+
+        // On a 480px wide list the 500px rendition is enough
+        Bitmap narrowList = decode(480);
+        assertSize(500, 300, narrowList);
+        assertEquals(before / 8, PAGE_SIZE * narrowList.getByteCount());
+
+        // On a 240px wide list the 500px rendition subsampled by two
+        Bitmap smallList = decode(240);
+        assertSize(250, 150, smallList);
+        assertEquals(before / 32, PAGE_SIZE * smallList.getByteCount());
+    }
+
+    /**
+     * Decode the rendition a list of the given width asks for, from its JPEG bytes.
+     */
+    private static Bitmap decode(int listWidth) {
+        int width = ImageQuality.idealWidth(listWidth);
+        Bitmap bitmap = BitmapDecoder.decode(jpeg(width, width * 600 / 1000), listWidth);
+        assertNotNull(bitmap);
+        assertEquals(Bitmap.Config.RGB_565, bitmap.getConfig());
+        return bitmap;
+    }
+
+    private static byte[] jpeg(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(0xff336699);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, output);
+        bitmap.recycle();
+        return output.toByteArray();
+    }
+
+    private static void assertSize(int width, int height, Bitmap bitmap) {
+        assertEquals(width, bitmap.getWidth());
+        assertEquals(height, bitmap.getHeight());
+        assertEquals(BitmapDecoder.byteCount(width, height, 1, BitmapDecoder.BYTES_PER_PIXEL_RGB_565),
+                bitmap.getByteCount());
+    }
+}
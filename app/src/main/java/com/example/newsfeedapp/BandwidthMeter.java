@@ -0,0 +1,55 @@
+package com.example.newsfeedapp;
+
+/**
+ * Running estimate of the throughput of a connection, from the bodies of the recent responses.
+ * Responses are often read several at a time, so this is what one request can expect to get,
+ * not what the link can carry.
+ */
+public class BandwidthMeter {
+
+    /**
+     * Bodies smaller than this take more time arriving than being transferred, and say
+     * nothing of the bandwidth
+     */
+    static final long MIN_SAMPLE_BYTES = 8 * 1024;
+
+    /**
+     * Weight of the latest sample in the estimate
+     */
+    private static final double WEIGHT = 0.3;
+
+    private double mBytesPerSecond;
+    private int mSampleCount;
+
+    /**
+     * Record a body read from the network.
+     *
+     * @param bytes bytes received
+     * @param nanos time from the first to the last byte
+     */
+    public synchronized void addSample(long bytes, long nanos) {
+        if (bytes < MIN_SAMPLE_BYTES || nanos <= 0) {
+            return;
+        }
+        double bytesPerSecond = bytes * 1e9 / nanos;
+        mBytesPerSecond = mSampleCount == 0 ? bytesPerSecond : WEIGHT * bytesPerSecond + (1 - WEIGHT) * mBytesPerSecond;
+        mSampleCount++;
+    }
+
+    /**
+     * Return the estimated bytes per second, or 0 if nothing was measured yet.
+     */
+    public synchronized long getBytesPerSecond() {
+        return (long) mBytesPerSecond;
+    }
+
+    public synchronized void reset() {
+        mBytesPerSecond = 0;
+        mSampleCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BandwidthMeter{" + (long) mBytesPerSecond / 1024 + " KB/s, samples=" + mSampleCount + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.newsfeedapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Decodes thumbnails at the size they are shown at instead of their full resolution.
+ */
+public class BitmapDecoder {
+
+    /**
+     * Bytes per pixel of {@link Bitmap.Config#RGB_565}
+     */
+    static final int BYTES_PER_PIXEL_RGB_565 = 2;
+
+    /**
+     * Bytes per pixel of {@link Bitmap.Config#ARGB_8888}
+     */
+    static final int BYTES_PER_PIXEL_ARGB_8888 = 4;
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Decode the encoded image, subsampled to be no less wide than the given width.
+     *
+     * @param data     encoded image
+     * @param reqWidth width of the view the image is shown in, or 0 to keep the full size
+     * @return Bitmap of the image, or null if it can't be decoded
+     */
+    static Bitmap decode(byte[] data, int reqWidth) {
+        // First read only the bounds of the image
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+        // Then decode the pixels at the sample size that still fills the view
+        options.inSampleSize = calculateInSampleSize(options.outWidth, reqWidth);
+        options.inJustDecodeBounds = false;
+        // Thumbnails are JPEGs, so there is no alpha channel worth two extra bytes per pixel
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    /**
+     * Return the largest power of two sample size that keeps the image at least as wide as
+     * the view it is shown in.
+     */
+    static int calculateInSampleSize(int width, int reqWidth) {
+        int inSampleSize = 1;
+        if (reqWidth > 0) {
+            while (width / (inSampleSize * 2) >= reqWidth) {
+                inSampleSize *= 2;
+            }
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Return the number of bytes a bitmap of the given size holds once decoded.
+     */
+    static long byteCount(int width, int height, int inSampleSize, int bytesPerPixel) {
+        // BitmapFactory rounds subsampled dimensions up
+        long sampledWidth = (width + inSampleSize - 1) / inSampleSize;
+        long sampledHeight = (height + inSampleSize - 1) / inSampleSize;
+        return sampledWidth * sampledHeight * bytesPerPixel;
+    }
+}
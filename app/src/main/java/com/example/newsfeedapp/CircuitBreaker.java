@@ -0,0 +1,107 @@
+package com.example.newsfeedapp;
+
+/**
+ * Stops requests to an API that keeps failing, so the feed falls back to what is stored right
+ * away instead of waiting out timeouts and retries. After a number of failures in a row the
+ * breaker opens and requests are refused; once the open period is over a single trial request
+ * is let through, which closes the breaker again if it succeeds.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+
+    private State mState = State.CLOSED;
+    private int mFailureCount;
+    private long mOpenUntil;
+    private int mOpenedCount;
+
+    /**
+     * Constructs a new {@link CircuitBreaker}
+     *
+     * @param failureThreshold Failures in a row that open the breaker
+     * @param openMillis       Time requests are refused for once it opened
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.mFailureThreshold = failureThreshold;
+        this.mOpenMillis = openMillis;
+    }
+
+    /**
+     * Return whether a request may be made now. Past the open period, only the first caller
+     * gets to make the trial request.
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (mState) {
+            case OPEN:
+                if (now < mOpenUntil) {
+                    return false;
+                }
+                mState = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        mState = State.CLOSED;
+        mFailureCount = 0;
+    }
+
+    public synchronized void recordFailure(long now) {
+        mFailureCount++;
+        if (mState == State.HALF_OPEN || mFailureCount >= mFailureThreshold) {
+            open(now, mOpenMillis);
+        }
+    }
+
+    /**
+     * Record that a request let through was abandoned without an answer, so a trial request
+     * that was cancelled does not keep the breaker from ever trying again.
+     */
+    public synchronized void recordCancelled() {
+        if (mState == State.HALF_OPEN) {
+            mState = State.OPEN;
+        }
+    }
+
+    /**
+     * Refuse requests for the given time, e.g. as long as the API asked to be left alone.
+     */
+    public synchronized void open(long now, long millis) {
+        if (mState != State.OPEN) {
+            mOpenedCount++;
+        }
+        mState = State.OPEN;
+        mOpenUntil = Math.max(mOpenUntil, now + millis);
+    }
+
+    /**
+     * Return the state of the breaker, an open breaker whose time is up still reads as open
+     * until the next request is let through.
+     */
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /**
+     * Return how many times the breaker opened.
+     */
+    public synchronized int getOpenedCount() {
+        return mOpenedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{state=" + mState + ", failures=" + mFailureCount + ", opened=" + mOpenedCount + "}";
+    }
+}
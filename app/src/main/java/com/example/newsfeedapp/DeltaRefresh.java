@@ -0,0 +1,120 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refreshes a query ordered newest first by asking the API only for the news published since
+ * the newest one stored, and putting them on top of the stored ones. A refresh then downloads
+ * and parses about as many results as were published since the last one, instead of a page.
+ * The oldest news past the retention limit are dropped on the way.
+ */
+public class DeltaRefresh {
+
+    private static final String LOG_TAG = DeltaRefresh.class.getSimpleName();
+
+    /**
+     * Parameter of the API for the earliest publication date of the results, inclusive
+     */
+    static final String FROM_DATE = "from-date";
+
+    private final RequestExecutor mExecutor;
+    private final HttpCache mCache;
+    private final int mMaxNews;
+
+    public DeltaRefresh(Context context) {
+        this(RequestExecutor.getInstance(context), HttpCache.getInstance(context),
+                context.getResources().getInteger(R.integer.max_stored_news));
+    }
+
+    /**
+     * Constructs a new {@link DeltaRefresh}
+     *
+     * @param executor Executor of the requests to the API
+     * @param cache    Cache of the responses of the API
+     * @param maxNews  News kept for a query at most, the oldest are dropped
+     */
+    DeltaRefresh(RequestExecutor executor, HttpCache cache, int maxNews) {
+        this.mExecutor = executor;
+        this.mCache = cache;
+        this.mMaxNews = maxNews;
+    }
+
+    /**
+     * Return the news of a query, only fetching what is newer than the stored news if the
+     * query is ordered newest first, or null if they can't be fetched.
+     *
+     * @param url         request url of the first page of the query
+     * @param newestFirst whether the query is ordered newest first
+     * @param pageSize    results per page of the query
+     * @param stored      news stored for the query, newest first, or empty
+     * @param request     handle to abort the request
+     */
+    public List<News> fetch(String url, boolean newestFirst, int pageSize, List<News> stored, RequestHandle request) {
+        long newest = newestTime(stored);
+        if (!newestFirst || newest == PublicationTime.UNKNOWN) {
+            return mExecutor.fetchNewsData(url, request, mCache);
+        }
+        List<News> newer = mExecutor.fetchNewsData(deltaUrl(url, newest), request, mCache);
+        if (newer == null) {
+            return null;
+        }
+        if (newer.size() >= pageSize) {
+            // More was published than a page holds, the stored news would follow a gap
+            Log.d(LOG_TAG, "Refreshed " + newer.size() + " news, a page or more since the stored ones");
+            return newer;
+        }
+        List<News> merged = merge(newer, stored, mMaxNews);
+        Log.d(LOG_TAG, "Refreshed " + newer.size() + " news on top of " + stored.size() + " stored, keeping "
+                + merged.size());
+        return merged;
+    }
+
+    /**
+     * Return the request url asking only for the news published at or after the time.
+     */
+    static String deltaUrl(String url, long since) {
+        return Uri.parse(url).buildUpon()
+                .appendQueryParameter(FROM_DATE, PublicationTime.toIsoString(since))
+                .build().toString();
+    }
+
+    /**
+     * Return the newer news on top of the stored ones, at most the given number.
+     */
+    static List<News> merge(List<News> newer, List<News> stored, int maxNews) {
+        List<News> merged = new ArrayList<>(newer.size() + stored.size());
+        Set<String> urls = new HashSet<>();
+        // The newest stored article is fetched again, since the date is inclusive, and the
+        // fetched copy is the one kept
+        for (News item : newer) {
+            if (item.getWebUrl() == null || urls.add(item.getWebUrl())) {
+                merged.add(item);
+            }
+        }
+        for (News item : stored) {
+            if (item.getWebUrl() == null || urls.add(item.getWebUrl())) {
+                merged.add(item);
+            }
+        }
+        if (merged.size() > maxNews) {
+            // Past the retention limit, the oldest news are dropped
+            merged.subList(maxNews, merged.size()).clear();
+        }
+        return merged;
+    }
+
+    private static long newestTime(List<News> news) {
+        long newest = PublicationTime.UNKNOWN;
+        for (News item : news) {
+            newest = Math.max(newest, item.getWebPublicationTime());
+        }
+        return newest;
+    }
+}
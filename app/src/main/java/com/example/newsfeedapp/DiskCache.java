@@ -0,0 +1,173 @@
+package com.example.newsfeedapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A size bounded cache of byte arrays stored as files in a single directory.
+ * Entries are keyed by url and the least recently used files are deleted once
+ * the directory grows past its size cap.
+ */
+public class DiskCache {
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private long mSize;
+    private long mEvictionCount;
+
+    /**
+     * Constructs a new {@link DiskCache}
+     *
+     * @param directory Directory the entries are written to
+     * @param maxBytes  Maximum total size of the entries in bytes
+     */
+    public DiskCache(File directory, long maxBytes) {
+        this.mDirectory = directory;
+        this.mMaxBytes = maxBytes;
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                mSize += file.length();
+            }
+        }
+    }
+
+    /**
+     * Return the bytes stored for the given url, or null if there is no entry.
+     */
+    public synchronized byte[] get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            byte[] data = readFile(file);
+            // Reads count as a use, so the entry moves to the back of the eviction order
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the bytes for the given url, evicting older entries if the cache grows too large.
+     */
+    public synchronized void put(String url, byte[] data) {
+        File file = fileFor(url);
+        File tempFile = new File(mDirectory, file.getName() + ".tmp");
+        long previousSize = file.length();
+        try {
+            writeFile(tempFile, data);
+            // Rename so a reader never sees a partially written entry
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return;
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            return;
+        }
+        mSize += data.length - previousSize;
+        trimToSize();
+    }
+
+    public synchronized long size() {
+        return mSize;
+    }
+
+    public synchronized long evictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Delete the least recently used entries until the cache fits its size cap.
+     */
+    private void trimToSize() {
+        if (mSize <= mMaxBytes) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (mSize <= mMaxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                mSize -= length;
+                mEvictionCount++;
+            }
+        }
+    }
+
+    private File fileFor(String url) {
+        return new File(mDirectory, keyFor(url));
+    }
+
+    /**
+     * Return a file name safe key for the given url.
+     */
+    static String keyFor(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(data);
+        } finally {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.newsfeedapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps track of the pages of the feed held in the list. Only a window of consecutive pages
+ * is kept in memory: adding a page at one end makes room by dropping one from the other end.
+ */
+public class FeedPages {
+
+    private final int mMaxPages;
+    // Number of news per page, as far as the pages were split by reset(List, int)
+    private int mPageSize = Integer.MAX_VALUE;
+    private final ArrayDeque<List<String>> mPageUrls = new ArrayDeque<>();
+    private final Set<String> mUrls = new HashSet<>();
+    private int mFirstPage = 1;
+
+    /**
+     * Constructs a new {@link FeedPages}
+     *
+     * @param maxPages Number of pages kept in memory
+     */
+    public FeedPages(int maxPages) {
+        this.mMaxPages = maxPages;
+    }
+
+    /**
+     * Start over with the given news as the first page.
+     *
+     * @return the news of the page
+     */
+    public List<News> reset(List<News> news) {
+        return reset(news, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Start over with the given news as the first pages, e.g. the news stored for the feed.
+     * A last page that is not full is kept along with the page before it, so the page fetched
+     * next repeats some of the news rather than skipping some. Only as many pages as allowed
+     * are kept, the first ones, and the news past them are fetched again with the next page.
+     *
+     * @param pageSize number of news per page
+     * @return the news of the pages
+     */
+    public List<News> reset(List<News> news, int pageSize) {
+        mPageUrls.clear();
+        mUrls.clear();
+        mFirstPage = 1;
+        mPageSize = pageSize;
+        int pages = Math.max(1, news.size() / pageSize);
+        boolean capped = pages > mMaxPages;
+        pages = Math.min(pages, mMaxPages);
+        List<News> added = new ArrayList<>();
+        for (int page = 0; page < pages; page++) {
+            int end = page == pages - 1 && !capped ? news.size() : (page + 1) * pageSize;
+            added.addAll(addLast(news.subList(page * pageSize, end)));
+        }
+        return added;
+    }
+
+    /**
+     * Add the news published since the first page was fetched on top of it.
+     *
+     * @return the news that are not on a kept page already, none if the first page is not kept
+     */
+    public List<News> addNewest(List<News> news) {
+        if (mFirstPage > 1 || mPageUrls.isEmpty()) {
+            // They are on the first page once it is fetched again
+            return new ArrayList<>();
+        }
+        List<String> urls = new ArrayList<>();
+        List<News> added = filter(news, urls);
+        mPageUrls.getFirst().addAll(0, urls);
+        return added;
+    }
+
+    /**
+     * Drop as many news from the end of the kept pages as the newest news added on top made the
+     * first page grow past a page, so the pages kept don't grow with every refresh. The pages
+     * of the feed moved on by as much, so the page fetched next starts with the news dropped.
+     *
+     * @return the number of news dropped from the end of the list
+     */
+    public int trimNewest() {
+        if (mPageUrls.isEmpty() || mPageUrls.getFirst().size() <= mPageSize) {
+            return 0;
+        }
+        int overflow = mPageUrls.getFirst().size() - mPageSize;
+        List<String> urls = new ArrayList<>();
+        for (List<String> page : mPageUrls) {
+            urls.addAll(page);
+        }
+        List<String> dropped = urls.subList(urls.size() - overflow, urls.size());
+        mUrls.removeAll(dropped);
+        dropped.clear();
+        // The news kept are split into pages again where the pages of the feed now start
+        mPageUrls.clear();
+        for (int start = 0; start < urls.size(); start += mPageSize) {
+            mPageUrls.addLast(new ArrayList<>(urls.subList(start, Math.min(start + mPageSize, urls.size()))));
+        }
+        return overflow;
+    }
+
+    /**
+     * Return the number of the page after the last one kept.
+     */
+    public int getNextPage() {
+        return mFirstPage + mPageUrls.size();
+    }
+
+    /**
+     * Return the number of the page before the first one kept, or 0 if that is the first page.
+     */
+    public int getPreviousPage() {
+        return mFirstPage - 1;
+    }
+
+    /**
+     * Add the page after the last one kept.
+     *
+     * @return the news of the page that are not on a kept page already
+     */
+    public List<News> addLast(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        List<News> added = filter(news, urls);
+        mPageUrls.addLast(urls);
+        return added;
+    }
+
+    /**
+     * Add the page before the first one kept.
+     *
+     * @return the news of the page that are not on a kept page already
+     */
+    public List<News> addFirst(List<News> news) {
+        List<String> urls = new ArrayList<>();
+        List<News> added = filter(news, urls);
+        mPageUrls.addFirst(urls);
+        mFirstPage--;
+        return added;
+    }
+
+    /**
+     * Drop the first page if more pages than allowed are kept.
+     *
+     * @return the number of news dropped from the start of the list
+     */
+    public int trimFirst() {
+        if (mPageUrls.size() <= mMaxPages) {
+            return 0;
+        }
+        mFirstPage++;
+        return drop(mPageUrls.removeFirst());
+    }
+
+    /**
+     * Drop the last page if more pages than allowed are kept.
+     *
+     * @return the number of news dropped from the end of the list
+     */
+    public int trimLast() {
+        if (mPageUrls.size() <= mMaxPages) {
+            return 0;
+        }
+        return drop(mPageUrls.removeLast());
+    }
+
+    private List<News> filter(List<News> news, List<String> urls) {
+        // Articles published while scrolling push older ones onto the next page, so a page
+        // can repeat articles already shown
+        List<News> added = new ArrayList<>();
+        for (News item : news) {
+            if (mUrls.add(item.getWebUrl())) {
+                urls.add(item.getWebUrl());
+                added.add(item);
+            }
+        }
+        return added;
+    }
+
+    private int drop(List<String> urls) {
+        mUrls.removeAll(urls);
+        return urls.size();
+    }
+}
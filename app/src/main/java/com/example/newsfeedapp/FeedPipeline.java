@@ -0,0 +1,152 @@
+package com.example.newsfeedapp;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the loading of a list of news on a background executor and hands its updates to a
+ * listener on the delivery thread, as a stream: e.g. the stored news first, then the topics of
+ * My feed as they arrive, then the final list. Only one load runs at a time; starting a new
+ * one cancels the last, and updates of a cancelled load are dropped.
+ * <p>
+ * A load is identified by a key, and is not started again for the same key unless forced,
+ * so the feed can ask for its news again (e.g. after a rotation) without fetching them again.
+ */
+public class FeedPipeline {
+
+    /**
+     * Work loading the news, run on the background executor.
+     */
+    public interface Job {
+        void run(Publisher publisher) throws InterruptedException;
+
+        /**
+         * Abort the work, called on the delivery thread while it may still be running.
+         */
+        void cancel();
+    }
+
+    /**
+     * Passes the updates of a {@link Job} on to the listener.
+     */
+    public interface Publisher {
+        /**
+         * @param news news loaded so far, or null if they could not be loaded
+         * @param done whether this is the last update of the load
+         */
+        void publish(List<News> news, boolean done);
+    }
+
+    /**
+     * Receives the updates of the current load on the delivery thread.
+     */
+    public interface Listener {
+        void onNews(List<News> news, boolean done);
+
+        /**
+         * The load could not be started, too many loads are queued up. The news shown stay.
+         */
+        void onRefused();
+    }
+
+    private final ExecutorService mExecutor;
+    private final Executor mDelivery;
+    private final Listener mListener;
+
+    private String mKey;
+    private Job mJob;
+    private Future<?> mFuture;
+    // Tells the updates of the current load from those of loads cancelled since
+    private volatile int mGeneration;
+
+    /**
+     * Constructs a new {@link FeedPipeline}
+     *
+     * @param executor Executor the loads run on
+     * @param delivery Executor of the thread the listener is called on
+     * @param listener Listener of the updates
+     */
+    public FeedPipeline(ExecutorService executor, Executor delivery, Listener listener) {
+        this.mExecutor = executor;
+        this.mDelivery = delivery;
+        this.mListener = listener;
+    }
+
+    /**
+     * Start loading the news with the job, unless a load with the same key is running or has
+     * finished already.
+     *
+     * @param key   identifies what the job loads
+     * @param job   loads the news
+     * @param force whether to start the job even if the news of the key are loaded
+     * @return whether the job was started, false if it was refused or not needed
+     */
+    public boolean load(String key, final Job job, boolean force) {
+        if (!force && key.equals(mKey)) {
+            return false;
+        }
+        cancel();
+        mKey = key;
+        mJob = job;
+        final int generation = mGeneration;
+        final Publisher publisher = new Publisher() {
+            @Override
+            public void publish(final List<News> news, final boolean done) {
+                mDelivery.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            mListener.onNews(news, done);
+                        }
+                    }
+                });
+            }
+        };
+        try {
+            mFuture = mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        job.run(publisher);
+                    } catch (InterruptedException e) {
+                        // Cancelled, nobody waits for the news any more
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too many loads queued up, let the feed ask again later
+            mKey = null;
+            mJob = null;
+            mDelivery.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mGeneration) {
+                        mListener.onRefused();
+                    }
+                }
+            });
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Abort the current load, if any. Its updates not delivered yet are dropped.
+     */
+    public void cancel() {
+        mGeneration++;
+        mKey = null;
+        if (mJob != null) {
+            mJob.cancel();
+            mJob = null;
+        }
+        if (mFuture != null) {
+            // Drops the load if it has not started yet
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the stored feed in the background, so it is fresh when the app is opened. Every
+ * query to sync is fetched in the same run, which only happens on an unmetered network while
+ * charging, and the thumbnails of the top news go into the disk cache along with them.
+ */
+public class FeedSyncWorker extends Worker {
+
+    private static final String LOG_TAG = FeedSyncWorker.class.getSimpleName();
+    private static final String WORK_NAME = "feed-sync";
+
+    private volatile RequestHandle mRequest;
+
+    public FeedSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedule the periodic sync, unless it is scheduled already.
+     */
+    public static void schedule(Context context) {
+        long intervalMinutes = context.getResources().getInteger(R.integer.sync_interval_minutes);
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        // The flex window lets the system batch the sync with the work of other apps
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(FeedSyncWorker.class,
+                intervalMinutes, TimeUnit.MINUTES, intervalMinutes / 2, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Return the queries kept fresh by the sync.
+     */
+    static List<NewsQuery> getSyncQueries(Context context) {
+        if (NewsQuery.isMyFeed(context)) {
+            return NewsQuery.myFeedFromSettings(context);
+        }
+        return Collections.singletonList(NewsQuery.fromSettings(context));
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Resources resources = context.getResources();
+        NewsStore store = NewsStore.getInstance(context);
+        // Only the news newer than the stored ones are fetched
+        DeltaRefresh deltaRefresh = new DeltaRefresh(context);
+        ImageLoader imageLoader = ImageLoader.getInstance(context);
+        ThumbnailCache thumbnailCache = imageLoader.getCache();
+        int thumbnailCount = resources.getInteger(R.integer.sync_prefetch_thumbnails);
+        // The thumbnails span the list, which is as wide as the screen. Nobody waits for
+        // them, so they are fetched as sharp as the network allows
+        int rendition = imageLoader.chooseRendition(resources.getDisplayMetrics().widthPixels, true);
+
+        boolean failed = false;
+        for (NewsQuery query : getSyncQueries(context)) {
+            if (isStopped()) {
+                return Result.retry();
+            }
+            RequestHandle request = new RequestHandle();
+            mRequest = request;
+            List<News> stored = store.loadSnapshot(query.getKey()).getNews();
+            List<News> news = deltaRefresh.fetch(query.toUrl(context, 1), query.isNewestFirst(),
+                    query.getPageSize(context), stored, request);
+            if (news == null) {
+                failed = true;
+                continue;
+            }
+            store.save(query.getKey(), news);
+
+            int prefetched = 0;
+            for (int i = 0; i < news.size() && prefetched < thumbnailCount && !isStopped(); i++) {
+                String thumbnailUrl = news.get(i).getThumbnailUrl();
+                if (thumbnailUrl != null) {
+                    QueryUtils.fetchImage(thumbnailUrl, rendition, thumbnailCache);
+                    prefetched++;
+                }
+            }
+            Log.d(LOG_TAG, "Synced " + query.getTitle() + ": " + news.size() + " news, " + prefetched + " thumbnails");
+        }
+        return failed ? Result.retry() : Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        // The constraints no longer hold, e.g. the device was unplugged
+        RequestHandle request = mRequest;
+        if (request != null) {
+            request.cancel();
+        }
+    }
+}
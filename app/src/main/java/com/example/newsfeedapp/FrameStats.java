@@ -0,0 +1,78 @@
+package com.example.newsfeedapp;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Frame times recorded while the feed scrolls. A frame that takes more than one and a half
+ * refresh intervals missed its vsync and is counted as janky, along with the frames it dropped.
+ */
+public class FrameStats {
+
+    private final long mFrameIntervalNanos;
+    private long[] mFrameNanos = new long[256];
+    private int mFrameCount;
+    private int mJankyFrameCount;
+    private int mDroppedFrameCount;
+
+    /**
+     * Constructs a new {@link FrameStats}
+     *
+     * @param frameIntervalNanos Refresh interval of the display
+     */
+    public FrameStats(long frameIntervalNanos) {
+        this.mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * Record the time between the start of a frame and the start of the previous one.
+     */
+    public void addFrame(long frameNanos) {
+        if (mFrameCount == mFrameNanos.length) {
+            mFrameNanos = Arrays.copyOf(mFrameNanos, mFrameCount * 2);
+        }
+        mFrameNanos[mFrameCount++] = frameNanos;
+        if (frameNanos * 2 > mFrameIntervalNanos * 3) {
+            mJankyFrameCount++;
+            mDroppedFrameCount += Math.round((double) frameNanos / mFrameIntervalNanos) - 1;
+        }
+    }
+
+    public void reset() {
+        mFrameCount = 0;
+        mJankyFrameCount = 0;
+        mDroppedFrameCount = 0;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getJankyFrameCount() {
+        return mJankyFrameCount;
+    }
+
+    public int getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    /**
+     * Return the frame time in milliseconds that the given percentage of frames stay within.
+     */
+    public double getPercentileMillis(double percentile) {
+        if (mFrameCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mFrameNanos, mFrameCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * mFrameCount) - 1;
+        return sorted[Math.max(0, Math.min(index, mFrameCount - 1))] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "FrameStats{frames=%d, janky=%d (%.1f%%), dropped=%d, p50=%.1fms, p90=%.1fms, p99=%.1fms}",
+                mFrameCount, mJankyFrameCount, mFrameCount == 0 ? 0 : 100.0 * mJankyFrameCount / mFrameCount,
+                mDroppedFrameCount, getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.newsfeedapp;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of a measurement, e.g. the time taken by the requests of the feed. The
+ * percentiles are taken over the latest samples only, so they follow the app as it warms up
+ * and as the network changes, while the count covers every sample. Recording a sample costs a
+ * lock and an array store, so it can be done on the main thread.
+ */
+public class Histogram {
+
+    /**
+     * Latest samples the percentiles are taken over
+     */
+    static final int WINDOW = 512;
+
+    private final String mName;
+    private final long[] mSamples = new long[WINDOW];
+    private long mCount;
+    private long mMax;
+
+    /**
+     * Constructs a new {@link Histogram}
+     *
+     * @param name Name of the measurement, ending with its unit
+     */
+    public Histogram(String name) {
+        this.mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public synchronized void record(long value) {
+        mSamples[(int) (mCount % WINDOW)] = value;
+        mCount++;
+        mMax = Math.max(mMax, value);
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Return the largest sample ever recorded.
+     */
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Return the value that the given percentage of the latest samples stay within.
+     */
+    public synchronized long getPercentile(double percentile) {
+        int size = (int) Math.min(mCount, WINDOW);
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))];
+    }
+
+    public synchronized void reset() {
+        mCount = 0;
+        mMax = 0;
+    }
+
+    /**
+     * Return the percentiles, the largest sample and the count in one line.
+     */
+    public String getSummary() {
+        return "p50=" + getPercentile(50) + " p95=" + getPercentile(95) + " p99=" + getPercentile(99)
+                + " max=" + getMax() + " count=" + getCount();
+    }
+
+    @Override
+    public String toString() {
+        return mName + " " + getSummary();
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Cache of HTTP response bodies with the headers needed to reuse them. A response is served
+ * locally while it is within its max-age, and revalidated with a conditional request after
+ * that, so an unchanged response costs a 304 instead of the whole body.
+ */
+public class HttpCache {
+
+    /**
+     * Max-age of responses that don't set one, 60 seconds
+     */
+    static final long DEFAULT_MAX_AGE_MILLIS = 60 * 1000;
+
+    /**
+     * Maximum size of the cached bodies, 5MB
+     */
+    private static final long MAX_SIZE = 5 * 1024 * 1024;
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last-modified";
+    private static final String KEY_STORED_AT = "stored-at";
+    private static final String KEY_MAX_AGE = "max-age";
+
+    private static HttpCache sInstance;
+
+    private final File mDirectory;
+    private int mHitCount;
+    private int mRevalidatedCount;
+    private int mMissCount;
+
+    /**
+     * Constructs a new {@link HttpCache}
+     *
+     * @param directory Directory the responses are written to
+     */
+    public HttpCache(File directory) {
+        this.mDirectory = directory;
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+    }
+
+    public static synchronized HttpCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new HttpCache(new File(context.getCacheDir(), "http"));
+        }
+        return sInstance;
+    }
+
+    /**
+     * A cached response body and the headers it was served with.
+     */
+    public static class Entry {
+        private final File mBody;
+        private final File mMeta;
+        private final Properties mHeaders;
+
+        private Entry(File body, File meta, Properties headers) {
+            this.mBody = body;
+            this.mMeta = meta;
+            this.mHeaders = headers;
+        }
+
+        /**
+         * Return whether the response is still within its max-age and can be used as it is.
+         */
+        public boolean isFresh() {
+            long storedAt = Long.parseLong(mHeaders.getProperty(KEY_STORED_AT, "0"));
+            long maxAge = Long.parseLong(mHeaders.getProperty(KEY_MAX_AGE, "0"));
+            return System.currentTimeMillis() - storedAt < maxAge;
+        }
+
+        /**
+         * Make the request conditional on the cached response having changed.
+         */
+        public void addValidators(HttpURLConnection connection) {
+            String etag = mHeaders.getProperty(KEY_ETAG);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            String lastModified = mHeaders.getProperty(KEY_LAST_MODIFIED);
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        public InputStream openBody() throws IOException {
+            return new FileInputStream(mBody);
+        }
+    }
+
+    /**
+     * Return the cached response for the url, or null if there is none.
+     */
+    public synchronized Entry get(String url) {
+        String key = DiskCache.keyFor(url);
+        File body = new File(mDirectory, key + BODY_SUFFIX);
+        File meta = new File(mDirectory, key + META_SUFFIX);
+        if (!body.exists() || !meta.exists()) {
+            return null;
+        }
+        try {
+            Properties headers = readProperties(meta);
+            // Guard against a hash collision between two urls
+            if (!url.equals(headers.getProperty(KEY_URL))) {
+                return null;
+            }
+            body.setLastModified(System.currentTimeMillis());
+            return new Entry(body, meta, headers);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Record that the cached response was used without asking the server.
+     */
+    public synchronized void recordHit() {
+        mHitCount++;
+    }
+
+    /**
+     * Take the new headers of a 304 Not Modified response, which restart the max-age of the
+     * cached response.
+     */
+    public synchronized void update(Entry entry, HttpURLConnection connection) {
+        mRevalidatedCount++;
+        copyHeaders(connection, entry.mHeaders);
+        try {
+            writeProperties(entry.mMeta, entry.mHeaders);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Return a stream that copies the body of a 200 OK response into the cache as it is read,
+     * or null if the response must not be stored.
+     */
+    public synchronized Writer edit(String url, HttpURLConnection connection, InputStream body) {
+        mMissCount++;
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.US).contains("no-store")) {
+            return null;
+        }
+        Properties headers = new Properties();
+        headers.setProperty(KEY_URL, url);
+        copyHeaders(connection, headers);
+        String key = DiskCache.keyFor(url);
+        try {
+            return new Writer(body, key, headers);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getRevalidatedCount() {
+        return mRevalidatedCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HttpCache{hits=" + mHitCount + ", revalidated=" + mRevalidatedCount + ", misses=" + mMissCount + "}";
+    }
+
+    /**
+     * Stream of a response body that writes what is read to a temporary file, which becomes
+     * the cached body once the whole response has been read.
+     */
+    public class Writer extends FilterInputStream {
+
+        private final String mKey;
+        private final Properties mHeaders;
+        private final File mTempFile;
+        private final OutputStream mOutput;
+        private boolean mDone;
+
+        private Writer(InputStream in, String key, Properties headers) throws IOException {
+            super(in);
+            this.mKey = key;
+            this.mHeaders = headers;
+            // Hedged requests for the same url each write a file of their own
+            this.mTempFile = File.createTempFile(key, ".tmp", mDirectory);
+            this.mOutput = new FileOutputStream(mTempFile);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mOutput.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                mOutput.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        /**
+         * Read what is left of the body and store the response.
+         */
+        public void commit() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // Parsers stop at the end of the JSON, the rest still belongs to the body
+            }
+            mOutput.close();
+            mDone = true;
+            synchronized (HttpCache.this) {
+                File body = new File(mDirectory, mKey + BODY_SUFFIX);
+                File meta = new File(mDirectory, mKey + META_SUFFIX);
+                body.delete();
+                if (!mTempFile.renameTo(body)) {
+                    mTempFile.delete();
+                    return;
+                }
+                writeProperties(meta, mHeaders);
+                trimToSize();
+            }
+        }
+
+        /**
+         * Drop the partially written body, unless it has been committed.
+         */
+        public void abort() {
+            if (mDone) {
+                return;
+            }
+            mDone = true;
+            try {
+                mOutput.close();
+            } catch (IOException ignored) {
+            }
+            mTempFile.delete();
+        }
+    }
+
+    /**
+     * Delete the least recently used responses until the cached bodies fit the size cap.
+     */
+    private void trimToSize() {
+        File[] bodies = mDirectory.listFiles();
+        if (bodies == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : bodies) {
+            size += file.length();
+        }
+        if (size <= MAX_SIZE) {
+            return;
+        }
+        Arrays.sort(bodies, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (File file : bodies) {
+            if (size <= MAX_SIZE) {
+                break;
+            }
+            String name = file.getName();
+            if (!name.endsWith(BODY_SUFFIX)) {
+                continue;
+            }
+            File meta = new File(mDirectory, name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX);
+            size -= file.length() + meta.length();
+            file.delete();
+            meta.delete();
+        }
+    }
+
+    /**
+     * Copy the validators and the max-age of the response into the cached headers.
+     */
+    private static void copyHeaders(HttpURLConnection connection, Properties headers) {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null) {
+            headers.setProperty(KEY_ETAG, etag);
+        }
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (lastModified != null) {
+            headers.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        headers.setProperty(KEY_STORED_AT, String.valueOf(System.currentTimeMillis()));
+        headers.setProperty(KEY_MAX_AGE, String.valueOf(maxAgeMillis(connection.getHeaderField("Cache-Control"))));
+    }
+
+    /**
+     * Return how long a response may be used without revalidation, given its Cache-Control.
+     */
+    static long maxAgeMillis(String cacheControl) {
+        if (cacheControl == null) {
+            return DEFAULT_MAX_AGE_MILLIS;
+        }
+        long maxAge = DEFAULT_MAX_AGE_MILLIS;
+        for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-cache")) {
+                return 0;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    maxAge = Long.parseLong(directive.substring("max-age=".length())) * 1000;
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return maxAge;
+    }
+
+    private static Properties readProperties(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        return properties;
+    }
+
+    private static void writeProperties(File file, Properties properties) throws IOException {
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            properties.store(outputStream, null);
+        } finally {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.newsfeedapp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The one place HTTP requests are made from, for both the Guardian API and the thumbnails.
+ * Every request gets the same timeouts, connections are handed back to the pool of the
+ * platform HttpURLConnection to be kept alive instead of being torn down after each request,
+ * and each request records where its time went.
+ * <p>
+ * The platform pool keeps a few idle connections per host, and is not configured from here.
+ * The connections open at once are bounded by the threads making requests: the calls of the
+ * {@link RequestExecutor} and the workers of the {@link ImageLoader}.
+ */
+public class HttpClient {
+
+    static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private static final BandwidthMeter sBandwidthMeter = new BandwidthMeter();
+
+    private HttpClient() {
+    }
+
+    /**
+     * Return the bandwidth measured on the bodies of the responses received so far, of the
+     * calls that asked for it with {@link Call#setMeasuresBandwidth(boolean)}.
+     */
+    public static BandwidthMeter getBandwidthMeter() {
+        return sBandwidthMeter;
+    }
+
+    /**
+     * Prepare a GET request to the url. Request headers can still be added to its connection
+     * before it is executed.
+     *
+     * @param url     URL of the request
+     * @param request handle other threads can use to abort the request
+     * @param gzip    whether to ask for a gzip compressed response
+     */
+    public static Call newCall(URL url, RequestHandle request, boolean gzip) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        request.attach(connection);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setRequestMethod("GET");
+        if (gzip) {
+            // Asking for gzip ourselves means decompressing it ourselves, see Call#getBody
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        return new Call(url, connection);
+    }
+
+    /**
+     * A single request and its response.
+     */
+    public static class Call {
+
+        private final URL mUrl;
+        private final HttpURLConnection mConnection;
+        private InputStream mBody;
+        private long mStartNanos;
+        private long mConnectNanos;
+        private long mFirstByteNanos;
+        private long mEndNanos;
+        private long mBytes;
+        private boolean mMeasuresBandwidth;
+
+        private Call(URL url, HttpURLConnection connection) {
+            this.mUrl = url;
+            this.mConnection = connection;
+        }
+
+        public HttpURLConnection getConnection() {
+            return mConnection;
+        }
+
+        /**
+         * Set whether the body feeds the bandwidth meter. Only bodies read straight through
+         * should: when the reads wait on a parser, the body takes longer than the network.
+         */
+        public void setMeasuresBandwidth(boolean measuresBandwidth) {
+            mMeasuresBandwidth = measuresBandwidth;
+        }
+
+        /**
+         * Send the request and wait for the status line of the response.
+         *
+         * @return the response code
+         */
+        public int execute() throws IOException {
+            mStartNanos = System.nanoTime();
+            // Resolves the host and connects, unless a kept-alive connection is reused
+            mConnection.connect();
+            mConnectNanos = System.nanoTime();
+            int responseCode = mConnection.getResponseCode();
+            mFirstByteNanos = System.nanoTime();
+            return responseCode;
+        }
+
+        /**
+         * Return the body of a successful response, decompressed if it was sent gzipped.
+         */
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                InputStream rawBody = new CountingInputStream(mConnection.getInputStream());
+                String encoding = mConnection.getContentEncoding();
+                if (encoding != null && encoding.toLowerCase(Locale.US).contains("gzip")) {
+                    mBody = new GZIPInputStream(rawBody);
+                } else {
+                    mBody = rawBody;
+                }
+            }
+            return mBody;
+        }
+
+        /**
+         * Finish the request. The connection goes back to the pool instead of being closed.
+         */
+        public void close() throws IOException {
+            // Bodies read to the end were stamped when the end arrived
+            boolean complete = mEndNanos != 0;
+            if (!complete) {
+                mEndNanos = System.nanoTime();
+            }
+            if (mBody != null) {
+                if (complete && mMeasuresBandwidth) {
+                    sBandwidthMeter.addSample(mBytes, mEndNanos - mFirstByteNanos);
+                }
+                mBody.close();
+            } else {
+                // The error body must be read or closed for the connection to be reused
+                InputStream errorStream = mConnection.getErrorStream();
+                if (errorStream != null) {
+                    errorStream.close();
+                }
+            }
+        }
+
+        /**
+         * Return how long the request spent connecting, waiting for the first byte
+         * of the response and reading its body, along with the bytes it transferred.
+         */
+        @Override
+        public String toString() {
+            long end = mEndNanos != 0 ? mEndNanos : System.nanoTime();
+            return mUrl.getHost() + mUrl.getPath()
+                    + " connect=" + millis(mStartNanos, mConnectNanos)
+                    + "ms ttfb=" + millis(mConnectNanos, mFirstByteNanos)
+                    + "ms body=" + millis(mFirstByteNanos, end)
+                    + "ms bytes=" + mBytes;
+        }
+
+        /**
+         * Return how long resolving the host and connecting took, close to 0 for a reused
+         * connection.
+         */
+        public long getConnectMillis() {
+            return millis(mStartNanos, mConnectNanos);
+        }
+
+        public long getFirstByteMillis() {
+            return millis(mConnectNanos, mFirstByteNanos);
+        }
+
+        public long getBodyMillis() {
+            return millis(mFirstByteNanos, mEndNanos != 0 ? mEndNanos : System.nanoTime());
+        }
+
+        /**
+         * Return how long the request took from the start to the end of the response.
+         */
+        public long getTotalMillis() {
+            return millis(mStartNanos, mEndNanos != 0 ? mEndNanos : System.nanoTime());
+        }
+
+        /**
+         * Return the number of body bytes received, before decompression.
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        private static long millis(long startNanos, long endNanos) {
+            return endNanos > startNanos ? (endNanos - startNanos) / 1000000 : 0;
+        }
+
+        /**
+         * Counts the bytes read from the network, and stamps the end of the response when
+         * they run out.
+         */
+        private class CountingInputStream extends FilterInputStream {
+
+            CountingInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    mBytes++;
+                } else {
+                    end();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    mBytes += read;
+                } else if (read == -1) {
+                    end();
+                }
+                return read;
+            }
+
+            private void end() {
+                if (mEndNanos == 0) {
+                    mEndNanos = System.nanoTime();
+                }
+            }
+        }
+    }
+}
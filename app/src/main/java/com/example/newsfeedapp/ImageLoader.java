@@ -0,0 +1,298 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads article thumbnails off the main thread and binds them into list rows as they arrive.
+ * The list is rendered from the JSON response alone, so a slow image never holds back the feed.
+ * <p>
+ * Each thumbnail is fetched at the rendition the {@link ImageQuality} picks for the network,
+ * and the thumbnails shown below the sharpness their views need are upgraded once the list
+ * is idle.
+ * <p>
+ * The fetches are run in the order the {@link ImageScheduler} picks from where their rows are in
+ * the list, and a fetch for a view that is recycled or bound to another article is cancelled.
+ */
+public class ImageLoader {
+
+    /**
+     * Number of thumbnails fetched at the same time
+     */
+    private static final int POOL_SIZE = 4;
+
+    /**
+     * How long the network type is trusted before it is looked up again
+     */
+    private static final long NETWORK_CHECK_MILLIS = 5000;
+
+    private static ImageLoader sInstance;
+
+    private final ImageScheduler mScheduler = new ImageScheduler(Executors.newFixedThreadPool(POOL_SIZE), POOL_SIZE);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ThumbnailCache mCache;
+    private final ImageQuality mQuality;
+    private final ConnectivityManager mConnectivityManager;
+    private ImageQuality.Network mNetwork;
+    private long mNetworkCheckedAt;
+
+    // Rendition shown in each view, the width of the views waiting for a sharper one, and the
+    // row each view shows and the fetch it waits for, only touched on the main thread
+    private final Map<ImageView, Integer> mShown = new WeakHashMap<>();
+    private final Map<ImageView, Integer> mUpgradable = new WeakHashMap<>();
+    private final Map<ImageView, Integer> mPositions = new WeakHashMap<>();
+    private final Map<ImageView, ImageScheduler.Request> mRequests = new WeakHashMap<>();
+    private boolean mListIdle = true;
+
+    private ImageLoader(Context context) {
+        mCache = new ThumbnailCache(new File(context.getCacheDir(), "thumbnails"));
+        Resources resources = context.getResources();
+        mQuality = new ImageQuality(resources.getInteger(R.integer.image_time_budget_millis),
+                resources.getInteger(R.integer.image_idle_time_budget_millis));
+        mConnectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public ThumbnailCache getCache() {
+        return mCache;
+    }
+
+    public ImageScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Return the rendition to fetch for a view of the given width on the current network.
+     *
+     * @param width width the thumbnail is shown at, or 0 if unknown
+     * @param idle  whether nothing moves on screen, so a sharper thumbnail may take longer
+     */
+    public int chooseRendition(int width, boolean idle) {
+        return mQuality.chooseWidth(width, getNetwork(), HttpClient.getBandwidthMeter().getBytesPerSecond(), idle);
+    }
+
+    private synchronized ImageQuality.Network getNetwork() {
+        long now = SystemClock.elapsedRealtime();
+        if (mNetwork == null || now - mNetworkCheckedAt > NETWORK_CHECK_MILLIS) {
+            mNetwork = ImageQuality.networkOf(mConnectivityManager);
+            mNetworkCheckedAt = now;
+        }
+        return mNetwork;
+    }
+
+    /**
+     * Fetch the thumbnail at the given url and show it in the {@link ImageView}, unless the
+     * view has been recycled for another article in the meantime.
+     *
+     * @param url       string of the thumbnail url
+     * @param imageView view the thumbnail is bound to
+     * @param width     width the thumbnail is shown at, or 0 if unknown
+     * @param position  position of the row of the view in the list
+     */
+    public void load(String url, ImageView imageView, int width, int position) {
+        if (url.equals(imageView.getTag(R.id.image_thumbnail)) && mRequests.containsKey(imageView)) {
+            // Bound again to the same article, the thumbnail is on its way already
+            return;
+        }
+        cancel(imageView);
+        // Remember which url the view is waiting for, for upgrading it later
+        imageView.setTag(R.id.image_thumbnail, url);
+        mPositions.put(imageView, position);
+
+        // A thumbnail already decoded is bound right away, without touching disk or network,
+        // the sharpest one the view needs if it is there
+        int ideal = ImageQuality.idealWidth(width);
+        int rendition = chooseRendition(width, false);
+        Bitmap cached = mCache.peekBitmap(key(url, ideal, width));
+        int cachedRendition = ideal;
+        if (cached == null && rendition != ideal) {
+            cached = mCache.peekBitmap(key(url, rendition, width));
+            cachedRendition = rendition;
+        }
+        mCache.recordMemoryLookup(cached != null);
+        if (cached != null) {
+            show(imageView, url, cachedRendition, width, cached);
+            return;
+        }
+        fetch(url, rendition, imageView, width, position);
+    }
+
+    /**
+     * Stop loading a thumbnail into the view, e.g. because its row was recycled. A download no
+     * other view waits for is aborted.
+     */
+    public void cancel(ImageView imageView) {
+        ImageScheduler.Request request = mRequests.remove(imageView);
+        if (request != null) {
+            request.cancel();
+        }
+        imageView.setTag(R.id.image_thumbnail, null);
+        mShown.remove(imageView);
+        mUpgradable.remove(imageView);
+        mPositions.remove(imageView);
+    }
+
+    /**
+     * Fetch the thumbnail of a row about to be scrolled into view, so it is bound as soon as
+     * the row is. The fetch is dropped if the list scrolls past the row before it starts.
+     *
+     * @param width    width the thumbnail will be shown at, or 0 if unknown
+     * @param position position of the row in the list
+     */
+    public void prefetch(String url, int width, int position) {
+        int rendition = chooseRendition(width, false);
+        String key = key(url, rendition, width);
+        // Not counted, the row looks the thumbnail up again once it is bound
+        if (mCache.peekBitmap(key) == null) {
+            mScheduler.prefetch(key, position, new Fetch(url, rendition, null, width));
+        }
+    }
+
+    /**
+     * Tell which rows are visible and which way the list scrolls, to fetch the thumbnails of
+     * the visible rows first and then of the rows ahead.
+     *
+     * @param direction positive when scrolling down, negative when scrolling up
+     */
+    public void setViewport(int firstVisible, int lastVisible, int direction) {
+        mScheduler.setViewport(firstVisible, lastVisible, direction);
+    }
+
+    /**
+     * Tell how the list scrolls, one of the {@code RecyclerView.SCROLL_STATE_} constants.
+     */
+    public void onScrollStateChanged(int newState) {
+        // The rows flying by during a fling would be recycled before their thumbnails arrive,
+        // the rows it stops at are fetched once it settles
+        mScheduler.setPaused(newState == RecyclerView.SCROLL_STATE_SETTLING);
+        // Sharper thumbnails are only fetched for the rows the user stopped at
+        setListIdle(newState == RecyclerView.SCROLL_STATE_IDLE);
+    }
+
+    /**
+     * Tell whether the list is at rest. Once it is, the thumbnails on screen are upgraded to
+     * the rendition their views need, as far as the network allows.
+     */
+    private void setListIdle(boolean idle) {
+        mListIdle = idle;
+        if (idle) {
+            for (Map.Entry<ImageView, Integer> upgradable : new ArrayList<>(mUpgradable.entrySet())) {
+                upgrade(upgradable.getKey(), upgradable.getValue());
+            }
+        }
+    }
+
+    private void upgrade(ImageView imageView, int width) {
+        Object url = imageView.getTag(R.id.image_thumbnail);
+        Integer shown = mShown.get(imageView);
+        Integer position = mPositions.get(imageView);
+        if (!(url instanceof String) || shown == null || position == null) {
+            mUpgradable.remove(imageView);
+            return;
+        }
+        int rendition = chooseRendition(width, true);
+        if (rendition > shown) {
+            mUpgradable.remove(imageView);
+            fetch((String) url, rendition, imageView, width, position);
+        }
+    }
+
+    private void fetch(String url, int rendition, ImageView imageView, int width, int position) {
+        Fetch fetch = new Fetch(url, rendition, imageView, width);
+        fetch.mRequest = mScheduler.submit(position, false, fetch);
+        mRequests.put(imageView, fetch.mRequest);
+    }
+
+    /**
+     * Fetch of a thumbnail for a view, or for the memory cache alone when prefetching.
+     */
+    private class Fetch implements ImageScheduler.Task {
+        private final String mUrl;
+        private final int mRendition;
+        private final ImageView mImageView;
+        private final int mWidth;
+        // Set on the main thread right after submitting, and only read there
+        private ImageScheduler.Request mRequest;
+
+        Fetch(String url, int rendition, ImageView imageView, int width) {
+            this.mUrl = url;
+            this.mRendition = rendition;
+            this.mImageView = imageView;
+            this.mWidth = width;
+        }
+
+        @Override
+        public void run(RequestHandle request) {
+            long start = System.nanoTime();
+            final Bitmap bitmap = QueryUtils.downloadBitmap(mUrl, mRendition, mWidth, mCache, request);
+            if (!request.isCancelled()) {
+                Metrics.THUMBNAIL_MILLIS.record((System.nanoTime() - start) / 1000000);
+            }
+            if (bitmap != null) {
+                // The same thumbnail is decoded once per rendition and view width
+                mCache.putBitmap(key(mUrl, mRendition, mWidth), bitmap);
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onFetched(bitmap);
+                }
+            });
+        }
+
+        private void onFetched(Bitmap bitmap) {
+            if (mImageView == null) {
+                // Prefetched into the memory cache only
+                return;
+            }
+            // A late result for a recycled row does not overwrite the image of the article
+            // now shown in it
+            if (mRequests.get(mImageView) != mRequest) {
+                return;
+            }
+            mRequests.remove(mImageView);
+            Integer shown = mShown.get(mImageView);
+            // Nor does a blurrier thumbnail arriving late replace a sharper one
+            if (bitmap != null && (shown == null || shown < mRendition)) {
+                show(mImageView, mUrl, mRendition, mWidth, bitmap);
+            }
+        }
+    }
+
+    private void show(ImageView imageView, String url, int rendition, int width, Bitmap bitmap) {
+        imageView.setImageBitmap(bitmap);
+        mShown.put(imageView, rendition);
+        if (rendition < ImageQuality.idealWidth(width)) {
+            mUpgradable.put(imageView, width);
+            if (mListIdle) {
+                upgrade(imageView, width);
+            }
+        } else {
+            mUpgradable.remove(imageView);
+        }
+    }
+
+    private static String key(String url, int rendition, int width) {
+        return url + "@" + rendition + "#" + width;
+    }
+}
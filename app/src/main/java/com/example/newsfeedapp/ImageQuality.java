@@ -0,0 +1,151 @@
+package com.example.newsfeedapp;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.telephony.TelephonyManager;
+
+/**
+ * Picks the Guardian rendition of a thumbnail to download: as sharp as the view it is shown in
+ * needs, as long as the network can deliver it in time. While the list scrolls, thumbnails must
+ * arrive within a short time budget and cellular data is spared; once the list is idle, the
+ * thumbnails on screen can be upgraded within a longer budget.
+ */
+public class ImageQuality {
+
+    /**
+     * How the device is connected.
+     */
+    public enum Network {
+        /**
+         * Wi-Fi or ethernet, data costs nothing
+         */
+        UNMETERED,
+        /**
+         * 3G or better, or a metered Wi-Fi hotspot
+         */
+        CELLULAR,
+        /**
+         * 2G
+         */
+        SLOW
+    }
+
+    /**
+     * Widths the Guardian serves each image at, smallest first
+     */
+    static final int[] RENDITIONS = {140, 500, 1000};
+
+    /**
+     * Size of a rendition shown while scrolling on cellular data
+     */
+    static final int CELLULAR_WIDTH = 500;
+
+    /**
+     * Bytes of a Guardian JPEG per pixel, about 30KB for the 500px rendition
+     */
+    private static final double BYTES_PER_PIXEL = 0.2;
+
+    /**
+     * Height of a Guardian thumbnail for its width
+     */
+    private static final double ASPECT_RATIO = 0.6;
+
+    private final long mBudgetMillis;
+    private final long mIdleBudgetMillis;
+
+    /**
+     * Constructs a new {@link ImageQuality}
+     *
+     * @param budgetMillis     Time a thumbnail may take to download while the list scrolls
+     * @param idleBudgetMillis Time a sharper thumbnail may take once the list is idle
+     */
+    public ImageQuality(long budgetMillis, long idleBudgetMillis) {
+        this.mBudgetMillis = budgetMillis;
+        this.mIdleBudgetMillis = idleBudgetMillis;
+    }
+
+    /**
+     * Return the width of the rendition to download for a view.
+     *
+     * @param viewWidth      width of the view the thumbnail is shown in, or 0 if unknown
+     * @param network        how the device is connected
+     * @param bytesPerSecond estimated bandwidth of a request, or 0 if unknown
+     * @param idle           whether the list is at rest
+     */
+    public int chooseWidth(int viewWidth, Network network, long bytesPerSecond, boolean idle) {
+        int width = idealWidth(viewWidth);
+        if (!idle && network == Network.SLOW) {
+            width = RENDITIONS[0];
+        } else if ((!idle && network == Network.CELLULAR) || (idle && network == Network.SLOW)) {
+            width = Math.min(width, CELLULAR_WIDTH);
+        }
+        if (bytesPerSecond > 0) {
+            // Step down until the rendition arrives within the budget, the smallest always does
+            long budgetBytes = bytesPerSecond * (idle ? mIdleBudgetMillis : mBudgetMillis) / 1000;
+            while (width > RENDITIONS[0] && estimateBytes(width) > budgetBytes) {
+                width = smallerWidth(width);
+            }
+        }
+        return width;
+    }
+
+    private static int smallerWidth(int width) {
+        int smaller = RENDITIONS[0];
+        for (int rendition : RENDITIONS) {
+            if (rendition < width) {
+                smaller = rendition;
+            }
+        }
+        return smaller;
+    }
+
+    /**
+     * Return the width of the smallest rendition that fills the view without being scaled up.
+     */
+    public static int idealWidth(int viewWidth) {
+        if (viewWidth <= 0) {
+            // What the API links to
+            return CELLULAR_WIDTH;
+        }
+        for (int rendition : RENDITIONS) {
+            if (rendition >= viewWidth) {
+                return rendition;
+            }
+        }
+        return RENDITIONS[RENDITIONS.length - 1];
+    }
+
+    /**
+     * Return the bytes a rendition is expected to take.
+     */
+    static long estimateBytes(int width) {
+        return (long) (width * width * ASPECT_RATIO * BYTES_PER_PIXEL);
+    }
+
+    /**
+     * Return how the device is connected right now.
+     */
+    public static Network networkOf(ConnectivityManager connectivityManager) {
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null) {
+            return Network.CELLULAR;
+        }
+        if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE) {
+            switch (networkInfo.getSubtype()) {
+                case TelephonyManager.NETWORK_TYPE_GPRS:
+                case TelephonyManager.NETWORK_TYPE_EDGE:
+                case TelephonyManager.NETWORK_TYPE_CDMA:
+                case TelephonyManager.NETWORK_TYPE_1xRTT:
+                case TelephonyManager.NETWORK_TYPE_IDEN:
+                    return Network.SLOW;
+                default:
+                    return Network.CELLULAR;
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && connectivityManager.isActiveNetworkMetered()) {
+            return Network.CELLULAR;
+        }
+        return Network.UNMETERED;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Decides which thumbnail is fetched next, from where the rows needing them are in the list:
+ * the visible rows first, from the top, then the rows just ahead in the scroll direction, then
+ * the rows already scrolled past. Nothing new is started while the list is flung, since the
+ * rows flying by are recycled before their thumbnails could arrive.
+ * <p>
+ * A request cancelled before it starts is dropped, one cancelled while it runs has its
+ * {@link RequestHandle} cancelled to abort its download.
+ * <p>
+ * Prefetches are keyed by the thumbnail they fetch, so a thumbnail is prefetched once while
+ * its request is pending or running, and again once it finished or was dropped.
+ */
+public class ImageScheduler {
+
+    /**
+     * Rank of the first row ahead of the visible ones
+     */
+    private static final long AHEAD = 1000;
+
+    /**
+     * Rank of the first row behind the visible ones
+     */
+    private static final long BEHIND = 1000000;
+
+    /**
+     * Work of a request, run on the executor.
+     */
+    public interface Task {
+        /**
+         * @param request handle cancelled if the request is cancelled while it runs
+         */
+        void run(RequestHandle request);
+    }
+
+    /**
+     * A thumbnail to fetch for a row of the list.
+     */
+    public class Request {
+        private final int mPosition;
+        private final boolean mPrefetch;
+        private final Task mTask;
+        // Thumbnail a prefetch is for, or null
+        private String mKey;
+        private final RequestHandle mHandle = new RequestHandle();
+        private boolean mStarted;
+        private boolean mDone;
+        private boolean mCancelled;
+
+        Request(int position, boolean prefetch, Task task) {
+            this.mPosition = position;
+            this.mPrefetch = prefetch;
+            this.mTask = task;
+        }
+
+        public int getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * Drop the request, or abort it if it is running already.
+         */
+        public void cancel() {
+            ImageScheduler.this.cancel(this);
+        }
+    }
+
+    private final Executor mExecutor;
+    private final int mMaxRunning;
+    private final List<Request> mPending = new ArrayList<>();
+    private final Map<String, Request> mPrefetches = new HashMap<>();
+    private int mRunning;
+    private boolean mPaused;
+    private int mFirstVisible;
+    private int mLastVisible = -1;
+    private int mDirection = 1;
+
+    private int mSubmittedCount;
+    private int mCompletedCount;
+    private int mDroppedCount;
+    private int mAbortedCount;
+
+    private final Runnable mWorker = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Request request;
+                synchronized (ImageScheduler.this) {
+                    request = mPaused ? null : takeNext();
+                    if (request == null) {
+                        mRunning--;
+                        return;
+                    }
+                    request.mStarted = true;
+                }
+                try {
+                    request.mTask.run(request.mHandle);
+                } finally {
+                    synchronized (ImageScheduler.this) {
+                        request.mDone = true;
+                        forget(request);
+                        if (!request.mCancelled) {
+                            mCompletedCount++;
+                        }
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Constructs a new {@link ImageScheduler}
+     *
+     * @param executor   Executor the requests run on
+     * @param maxRunning Requests running at the same time at most
+     */
+    public ImageScheduler(Executor executor, int maxRunning) {
+        this.mExecutor = executor;
+        this.mMaxRunning = maxRunning;
+    }
+
+    /**
+     * Queue the work of a request.
+     *
+     * @param position position of the row the thumbnail is for
+     * @param prefetch whether no row shows the thumbnail yet, so the request can be dropped
+     *                 once the list scrolls past the position
+     */
+    public synchronized Request submit(int position, boolean prefetch, Task task) {
+        Request request = new Request(position, prefetch, task);
+        mPending.add(request);
+        mSubmittedCount++;
+        dispatch();
+        return request;
+    }
+
+    /**
+     * Queue a prefetch of a thumbnail no row shows yet, unless one is queued or running
+     * already. It is dropped once the list scrolls past the position.
+     *
+     * @param key      thumbnail the prefetch is for
+     * @param position position of the row the thumbnail is for
+     * @return the request of the prefetch, or of the one queued before it for the thumbnail
+     */
+    public synchronized Request prefetch(String key, int position, Task task) {
+        Request pending = mPrefetches.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        Request request = submit(position, true, task);
+        request.mKey = key;
+        mPrefetches.put(key, request);
+        return request;
+    }
+
+    /**
+     * Tell which rows are visible and where the list is heading, which prefetched rows left
+     * behind are not wanted any more.
+     *
+     * @param direction positive when scrolling towards the end of the list, negative towards
+     *                  its start
+     */
+    public synchronized void setViewport(int firstVisible, int lastVisible, int direction) {
+        mFirstVisible = firstVisible;
+        mLastVisible = lastVisible;
+        if (direction != 0) {
+            mDirection = direction;
+        }
+        Iterator<Request> iterator = mPending.iterator();
+        while (iterator.hasNext()) {
+            Request request = iterator.next();
+            if (request.mPrefetch && rank(request.mPosition) >= BEHIND) {
+                iterator.remove();
+                request.mCancelled = true;
+                forget(request);
+                mDroppedCount++;
+            }
+        }
+    }
+
+    /**
+     * Hold back the requests not started yet, e.g. while the list is flung.
+     */
+    public synchronized void setPaused(boolean paused) {
+        mPaused = paused;
+        dispatch();
+    }
+
+    void cancel(Request request) {
+        synchronized (this) {
+            if (request.mCancelled || request.mDone) {
+                return;
+            }
+            request.mCancelled = true;
+            forget(request);
+            if (!request.mStarted) {
+                mPending.remove(request);
+                mDroppedCount++;
+                return;
+            }
+            mAbortedCount++;
+        }
+        // Outside of the lock, cancelling the handle calls into the downloads sharing it
+        request.mHandle.cancel();
+    }
+
+    /**
+     * Let the thumbnail of a prefetch be prefetched again, now its request is over.
+     */
+    private void forget(Request request) {
+        if (request.mKey != null && mPrefetches.get(request.mKey) == request) {
+            mPrefetches.remove(request.mKey);
+        }
+    }
+
+    private void dispatch() {
+        while (!mPaused && mRunning < mMaxRunning && mRunning < mPending.size()) {
+            mRunning++;
+            mExecutor.execute(mWorker);
+        }
+    }
+
+    private Request takeNext() {
+        Request next = null;
+        long nextRank = Long.MAX_VALUE;
+        for (Request request : mPending) {
+            long rank = rank(request.mPosition);
+            if (rank < nextRank) {
+                next = request;
+                nextRank = rank;
+            }
+        }
+        mPending.remove(next);
+        return next;
+    }
+
+    /**
+     * Return the order of the row at the position among the rows waiting for a thumbnail,
+     * lowest first.
+     */
+    private long rank(int position) {
+        if (position >= mFirstVisible && position <= mLastVisible) {
+            return position - mFirstVisible;
+        }
+        int ahead = mDirection > 0 ? position - mLastVisible : mFirstVisible - position;
+        if (ahead > 0) {
+            return AHEAD + ahead;
+        }
+        return BEHIND - ahead;
+    }
+
+    public synchronized int getSubmittedCount() {
+        return mSubmittedCount;
+    }
+
+    public synchronized int getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    /**
+     * Return the number of requests cancelled before they started, downloads saved.
+     */
+    public synchronized int getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Return the number of requests cancelled while they ran, downloads cut short.
+     */
+    public synchronized int getAbortedCount() {
+        return mAbortedCount;
+    }
+
+    public synchronized String getSummary() {
+        return "submitted=" + mSubmittedCount + " completed=" + mCompletedCount + " dropped=" + mDroppedCount
+                + " aborted=" + mAbortedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageScheduler{" + getSummary() + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.newsfeedapp;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Measures the frames drawn while a list scrolls, from the vsync timestamps the
+ * {@link Choreographer} hands out, and logs their {@link FrameStats} once the list comes to rest.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class JankMonitor extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+
+    private static final String LOG_TAG = JankMonitor.class.getSimpleName();
+
+    private final FrameStats mStats;
+    private final FrameStats mTotalStats;
+    private boolean mRunning;
+    private long mLastFrameNanos;
+
+    /**
+     * Constructs a new {@link JankMonitor}
+     *
+     * @param refreshRate Refresh rate of the display in frames per second
+     */
+    public JankMonitor(float refreshRate) {
+        long frameIntervalNanos = (long) (1e9 / refreshRate);
+        this.mStats = new FrameStats(frameIntervalNanos);
+        this.mTotalStats = new FrameStats(frameIntervalNanos);
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE && !mRunning) {
+            mRunning = true;
+            mLastFrameNanos = 0;
+            mStats.reset();
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            Log.d(LOG_TAG, "Scroll " + mStats);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            mStats.addFrame(frameTimeNanos - mLastFrameNanos);
+            mTotalStats.addFrame(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Return the frames of every scroll measured so far.
+     */
+    public FrameStats getTotalStats() {
+        return mTotalStats;
+    }
+}
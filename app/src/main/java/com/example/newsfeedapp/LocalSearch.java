@@ -0,0 +1,93 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Searches the stored news on the device, so results show up while the user is still typing.
+ * The index is built from the {@link NewsStore} in the background and follows it as news are
+ * stored and dropped.
+ */
+public class LocalSearch {
+
+    private static final String LOG_TAG = LocalSearch.class.getSimpleName();
+
+    /**
+     * News indexed at a time, so a search never waits long for the index to be free
+     */
+    private static final int BATCH_SIZE = 200;
+
+    private static LocalSearch sInstance;
+
+    private final NewsStore mStore;
+    private final SearchIndex mIndex = new SearchIndex();
+    // A single thread, so the news are indexed in the order they were stored
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    private LocalSearch(Context context) {
+        mStore = NewsStore.getInstance(context);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                List<News> news = mStore.loadAll();
+                index(news);
+                Log.i(LOG_TAG, "Indexed " + news.size() + " stored news in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        });
+    }
+
+    public static synchronized LocalSearch getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new LocalSearch(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Index news that were just stored, and remove the news no longer stored, in the background.
+     *
+     * @param news news just stored
+     */
+    public void update(final List<News> news) {
+        final List<News> copy = new ArrayList<>(news);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                index(copy);
+                // Read once indexed, so news stored by saves since are kept as well
+                Set<String> storedUrls = mStore.loadUrls();
+                synchronized (mIndex) {
+                    mIndex.retainAll(storedUrls);
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the stored news matching every word of the query, best matches first. Fast
+     * enough to run on the main thread on every key stroke.
+     *
+     * @param query text typed by the user
+     * @param limit maximum number of news returned
+     */
+    public List<News> search(String query, int limit) {
+        synchronized (mIndex) {
+            return mIndex.search(query, limit);
+        }
+    }
+
+    private void index(List<News> news) {
+        for (int start = 0; start < news.size(); start += BATCH_SIZE) {
+            synchronized (mIndex) {
+                mIndex.addAll(news.subList(start, Math.min(start + BATCH_SIZE, news.size())));
+            }
+        }
+    }
+}
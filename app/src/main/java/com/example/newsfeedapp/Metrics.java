@@ -0,0 +1,133 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where the time of the app goes: the requests and their bytes, the parsing of the feed, the
+ * loading of each thumbnail and the binding of each row, along with the hit rates of the caches
+ * and the requests shared between callers. The metrics are shown in the settings and can be
+ * written to a file to compare builds.
+ */
+public final class Metrics {
+
+    /**
+     * Time of a request of the API, from resolving the host to closing the response
+     */
+    public static final Histogram API_REQUEST_MILLIS = new Histogram("api_request_ms");
+
+    /**
+     * Body bytes of a response of the API, before decompression
+     */
+    public static final Histogram API_BYTES = new Histogram("api_bytes");
+
+    /**
+     * Time of parsing a response of the API. The parser reads a response from the network as
+     * it arrives, so this includes reading its body; a cached response is timed parsing alone.
+     */
+    public static final Histogram PARSE_MILLIS = new Histogram("parse_ms");
+
+    /**
+     * Time of downloading a thumbnail
+     */
+    public static final Histogram IMAGE_REQUEST_MILLIS = new Histogram("image_request_ms");
+
+    /**
+     * Bytes of a downloaded thumbnail
+     */
+    public static final Histogram IMAGE_BYTES = new Histogram("image_bytes");
+
+    /**
+     * Time of getting a thumbnail that was not in memory ready to show, from disk or network
+     */
+    public static final Histogram THUMBNAIL_MILLIS = new Histogram("thumbnail_ms");
+
+    /**
+     * Time of binding an article to a row of the feed
+     */
+    public static final Histogram BIND_MICROS = new Histogram("bind_us");
+
+    private static final Histogram[] HISTOGRAMS = {API_REQUEST_MILLIS, API_BYTES, PARSE_MILLIS,
+            IMAGE_REQUEST_MILLIS, IMAGE_BYTES, THUMBNAIL_MILLIS, BIND_MICROS};
+
+    private Metrics() {
+    }
+
+    /**
+     * Return the summary of each metric by its name, in a stable order.
+     */
+    public static Map<String, String> snapshot(Context context) {
+        Map<String, String> metrics = new LinkedHashMap<>();
+        for (Histogram histogram : HISTOGRAMS) {
+            metrics.put(histogram.getName(), histogram.getSummary());
+        }
+        metrics.put("api_single_flight", RequestExecutor.getInstance(context).getFlights().getSummary());
+        metrics.put("image_single_flight", QueryUtils.getImageFlights().getSummary());
+        metrics.put("image_scheduler", ImageLoader.getInstance(context).getScheduler().getSummary());
+        HttpCache httpCache = HttpCache.getInstance(context);
+        metrics.put("http_cache", hitRate(httpCache.getHitCount() + httpCache.getRevalidatedCount(),
+                httpCache.getMissCount()));
+        ThumbnailCache thumbnailCache = ImageLoader.getInstance(context).getCache();
+        metrics.put("thumbnail_memory_cache", hitRate(thumbnailCache.getMemoryHits(), thumbnailCache.getMemoryMisses()));
+        metrics.put("thumbnail_disk_cache", hitRate(thumbnailCache.getDiskHits(), thumbnailCache.getDiskMisses()));
+        TextPrecomputer textPrecomputer = TextPrecomputer.getInstance(context);
+        metrics.put("precomputed_text", hitRate(textPrecomputer.getHits(), textPrecomputer.getMisses()));
+        return metrics;
+    }
+
+    private static String hitRate(long hits, long misses) {
+        long lookups = hits + misses;
+        return "hit_rate=" + (lookups == 0 ? 0 : 100 * hits / lookups) + "% hits=" + hits + " misses=" + misses;
+    }
+
+    /**
+     * Write the metrics to a new file named after the version of the app and the time, along
+     * with the device they were measured on.
+     *
+     * @return the file written
+     */
+    public static File export(Context context) throws IOException {
+        String version;
+        try {
+            version = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            version = "unknown";
+        }
+        Date now = new Date();
+        File directory = context.getExternalFilesDir("metrics");
+        if (directory == null) {
+            // No external storage mounted
+            directory = new File(context.getFilesDir(), "metrics");
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        File file = new File(directory, "metrics-" + version + "-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(now) + ".txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+        try {
+            writer.write("version " + version + "\n");
+            writer.write("device " + Build.MANUFACTURER + " " + Build.MODEL + " api=" + Build.VERSION.SDK_INT + "\n");
+            writer.write("time " + now.getTime() + "\n");
+            for (Map.Entry<String, String> metric : snapshot(context).entrySet()) {
+                writer.write(metric.getKey() + " " + metric.getValue() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
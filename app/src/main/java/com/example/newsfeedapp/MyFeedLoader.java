@@ -0,0 +1,168 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads "My feed": the news of several topics fetched in parallel and merged into one list,
+ * newest first. The stored copies of the topics are shown first, and each topic replaces its
+ * stored copy as soon as it arrives, so a slow topic only holds back its own news. A topic
+ * that fails or is still loading after the timeout keeps its stored copy.
+ */
+public class MyFeedLoader implements FeedPipeline.Job {
+
+    private static final String LOG_TAG = MyFeedLoader.class.getSimpleName();
+
+    private static ExecutorService sExecutor;
+
+    private final Context mContext;
+    private final List<NewsQuery> mQueries;
+    private final boolean mOnline;
+    private final boolean mRefresh;
+    private final long mFreshMillis;
+    private final long mTimeoutMillis;
+    private final NewsStore mStore;
+    private final Object mLock = new Object();
+    // Thread waiting for the topics, guarded by mLock
+    private Thread mLoadingThread;
+    private volatile boolean mCancelled;
+
+    /**
+     * Constructs a new {@link MyFeedLoader}
+     *
+     * @param context Context of the loader
+     * @param queries Queries of the topics in the feed
+     * @param online  Whether the topics can be fetched from the network
+     * @param refresh Whether to fetch the topics even if their stored copies are fresh
+     */
+    public MyFeedLoader(@NonNull Context context, List<NewsQuery> queries, boolean online, boolean refresh) {
+        this.mContext = context.getApplicationContext();
+        this.mQueries = queries;
+        this.mOnline = online;
+        this.mRefresh = refresh;
+        this.mFreshMillis = context.getResources().getInteger(R.integer.feed_fresh_minutes) * 60 * 1000L;
+        this.mTimeoutMillis = context.getResources().getInteger(R.integer.my_feed_timeout_millis);
+        this.mStore = NewsStore.getInstance(context);
+        synchronized (MyFeedLoader.class) {
+            if (sExecutor == null) {
+                // Bounds how many topics are fetched at the same time
+                sExecutor = Executors.newFixedThreadPool(context.getResources().getInteger(R.integer.my_feed_concurrency));
+            }
+        }
+    }
+
+    @Override
+    public void run(final FeedPipeline.Publisher publisher) throws InterruptedException {
+        // Show the stored topics first, then revalidate them from the network
+        final Map<NewsQuery, List<News>> storedTopics = new LinkedHashMap<>();
+        boolean fresh = true;
+        long now = System.currentTimeMillis();
+        for (NewsQuery query : mQueries) {
+            NewsCodec.Snapshot snapshot = mStore.loadSnapshot(query.getKey());
+            storedTopics.put(query, snapshot.getNews());
+            fresh &= now - snapshot.getFetchedAt() < mFreshMillis;
+        }
+        List<News> stored = merge(storedTopics.values());
+        if (!stored.isEmpty() && fresh && !mRefresh) {
+            publisher.publish(stored, true);
+            return;
+        }
+        publisher.publish(stored, !mOnline);
+        if (!mOnline) {
+            return;
+        }
+
+        final Context context = mContext;
+        // Each topic only fetches the news newer than its stored ones
+        final DeltaRefresh deltaRefresh = new DeltaRefresh(context);
+        Map<NewsQuery, FanOut.Task<List<News>>> tasks = new LinkedHashMap<>();
+        for (final NewsQuery query : mQueries) {
+            tasks.put(query, new FanOut.Task<List<News>>() {
+                private final RequestHandle mRequest = new RequestHandle();
+
+                @Override
+                public List<News> call() {
+                    List<News> news = deltaRefresh.fetch(query.toUrl(context, 1), query.isNewestFirst(),
+                            query.getPageSize(context), storedTopics.get(query), mRequest);
+                    if (news != null) {
+                        mStore.save(query.getKey(), news);
+                    }
+                    return news;
+                }
+
+                @Override
+                public void cancel() {
+                    mRequest.cancel();
+                }
+            });
+        }
+
+        // Each topic shows its stored copy until its fetched news replace it
+        final Map<NewsQuery, List<News>> topics = new LinkedHashMap<>(storedTopics);
+        final long start = System.nanoTime();
+        synchronized (mLock) {
+            if (mCancelled) {
+                return;
+            }
+            mLoadingThread = Thread.currentThread();
+        }
+        try {
+            List<NewsQuery> unfinished = new FanOut<NewsQuery, List<News>>(sExecutor).run(tasks, mTimeoutMillis,
+                    new FanOut.Listener<NewsQuery, List<News>>() {
+                        @Override
+                        public void onResult(NewsQuery query, List<News> news, long millis) {
+                            Log.d(LOG_TAG, query.getTitle() + ": " + (news != null ? news.size() + " news" : "failed")
+                                    + " in " + millis + " ms, feed after " + (System.nanoTime() - start) / 1000000 + " ms");
+                            if (news != null) {
+                                // Show the topic while the others are still loading
+                                topics.put(query, news);
+                                publisher.publish(merge(topics.values()), false);
+                            }
+                        }
+                    });
+            for (NewsQuery query : unfinished) {
+                Log.d(LOG_TAG, query.getTitle() + ": left out after " + mTimeoutMillis + " ms");
+            }
+        } finally {
+            synchronized (mLock) {
+                mLoadingThread = null;
+            }
+            // An interrupt that came once the topics were done must not reach the next job run
+            // on this thread of the pipeline
+            Thread.interrupted();
+        }
+        // The topics that failed or were left out keep showing their stored copy
+        publisher.publish(merge(topics.values()), true);
+    }
+
+    @Override
+    public void cancel() {
+        // Stops waiting for the topics, which cancels their requests
+        synchronized (mLock) {
+            mCancelled = true;
+            if (mLoadingThread != null) {
+                mLoadingThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Return the news of the topics merged into one feed, newest first.
+     */
+    private static List<News> merge(Collection<List<News>> topics) {
+        FeedMerger merger = new FeedMerger();
+        for (List<News> news : topics) {
+            merger.add(news);
+        }
+        return merger.getNews();
+    }
+}
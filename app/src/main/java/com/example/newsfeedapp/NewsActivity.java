@@ -1,43 +1,47 @@
 package com.example.newsfeedapp;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import android.content.Intent;
-import android.content.Loader;
-import android.content.SharedPreferences;
+import android.graphics.Rect;
 import android.net.ConnectivityManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
+import android.os.Handler;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.SearchView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-
-import android.app.LoaderManager.LoaderCallbacks;
 import android.widget.Toast;
 
 import java.util.List;
 
-public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<List<News>> {
+public class NewsActivity extends AppCompatActivity {
 
-    private static final String URL_REQUEST_NEWS = "https://content.guardianapis.com/search";
-    private static final int NEWS_LOADER_ID = 1;
+    private static final String LOG_TAG = NewsActivity.class.getSimpleName();
     private NewsAdapter mNewsAdapter;
     private TextView mEmptyText;
     private TextView mTopicText;
-    private String mTopic;
     private ConnectivityManager mConnectivityManager;
     private SwipeRefreshLayout mSwipeContainer;
-
-    String mGetSearch;
+    private SearchScheduler mSearchScheduler;
+    private RecyclerView mNewsRecyclerView;
+    private LinearLayoutManager mLayoutManager;
+    private JankMonitor mJankMonitor;
+    private NewsViewModel mViewModel;
+    private LocalSearch mLocalSearch;
+    private int mPrefetchDistance;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,28 +50,95 @@ public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<L
 
         // Lookup the swipe container view
         mSwipeContainer = findViewById(R.id.swipeContainer);
-        mSwipeContainer.setRefreshing(true);
 
         mTopicText = findViewById(R.id.text_topic);
 
-        ListView newsListView = findViewById(R.id.list_news);
+        mNewsRecyclerView = findViewById(R.id.list_news);
         mEmptyText = findViewById(R.id.text_empty);
-        newsListView.setEmptyView(mEmptyText);
 
-        mNewsAdapter = new NewsAdapter(this, new ArrayList<News>());
-        newsListView.setAdapter(mNewsAdapter);
+        mLayoutManager = new LinearLayoutManager(this);
+        mNewsRecyclerView.setLayoutManager(mLayoutManager);
+        mNewsAdapter = new NewsAdapter(this, new NewsAdapter.OnNewsClickListener() {
+            @Override
+            public void onNewsClick(News news) {
+                if (news.getWebUrl() != null) {
+                    Uri newsUri = Uri.parse(news.getWebUrl());
+                    Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsUri);
+                    startActivity(websiteIntent);
+                } else {
+                    Toast.makeText(NewsActivity.this, "Missing info of web url", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        mNewsRecyclerView.setAdapter(mNewsAdapter);
+
+        // Rows overlap by their padding, so cards are as far apart as they are from the edges
+        final int rowOverlap = getResources().getDimensionPixelSize(R.dimen.news_row_overlap);
+        mNewsRecyclerView.addItemDecoration(new RecyclerView.ItemDecoration() {
+            @Override
+            public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+                if (parent.getChildAdapterPosition(view) > 0) {
+                    outRect.top = -rowOverlap;
+                }
+            }
+        });
+
+        // Measure the frames of every scroll, the Choreographer is only there from Jelly Bean on
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mJankMonitor = new JankMonitor(getWindowManager().getDefaultDisplay().getRefreshRate());
+            mNewsRecyclerView.addOnScrollListener(mJankMonitor);
+        }
 
         mConnectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
 
-        // If there is a network connection, fetch data
-        loadData();
+        // The feed outlives the activity, so a rotation shows the news already loaded
+        mViewModel = new ViewModelProvider(this, ViewModelProvider.AndroidViewModelFactory.getInstance(getApplication()))
+                .get(NewsViewModel.class);
+        mViewModel.getState().observe(this, new Observer<NewsViewModel.FeedState>() {
+            @Override
+            public void onChanged(NewsViewModel.FeedState state) {
+                showNews(state);
+            }
+        });
+
+        // Fetch the next page while the user is still a few rows away from the end of the list,
+        // and the previous one when scrolling back up to pages dropped to stay within the cap
+        mPrefetchDistance = getResources().getInteger(R.integer.prefetch_distance_rows);
+        mNewsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+                int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+                mViewModel.onScrolled(firstVisible, lastVisible, mPrefetchDistance);
+                mNewsAdapter.onViewportChanged(firstVisible, lastVisible, dy);
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                ImageLoader.getInstance(NewsActivity.this).onScrollStateChanged(newState);
+            }
+        });
+
+        mLocalSearch = LocalSearch.getInstance(this);
+
+        // Search only once the user pauses typing, and abort the search it supersedes
+        mSearchScheduler = new SearchScheduler(new Handler(), getResources().getInteger(R.integer.search_debounce_millis),
+                new SearchScheduler.Callback() {
+                    @Override
+                    public void onSearch(String query) {
+                        mViewModel.search(query, checkConnection(mConnectivityManager));
+                    }
+                });
+
+        // Keep the stored feed fresh in the background, so it can be shown right away
+        FeedSyncWorker.schedule(this);
 
         // Setup refresh listener which triggers new data loading
         mSwipeContainer.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
             @Override
             public void onRefresh() {
                 // Check for internet connection and attempt to load data
-                loadData();
+                loadData(true);
             }
         });
 
@@ -76,21 +147,33 @@ public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<L
                 R.color.colorByline,
                 R.color.colorBookmark);
 
-        newsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                News currentNews = mNewsAdapter.getItem(position);
-                assert currentNews != null;
-                if (currentNews.getWebUrl() != null) {
-                    Uri newsUri = Uri.parse(currentNews.getWebUrl());
-                    Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsUri);
-                    startActivity(websiteIntent);
-                } else {
-                    Toast.makeText(NewsActivity.this, "Missing info of web url", Toast.LENGTH_SHORT).show();
-                }
-            }
-        });
+    }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mNewsAdapter.startRelativeTimeUpdates();
+        mNewsAdapter.setPrecomputeText(TextPrecomputer.isEnabled(this));
+        // Show the stored feed, fetching it only if it is not fresh. Nothing is loaded again
+        // after a rotation, only when the settings changed what the feed shows, the feed was
+        // loaded offline or it was loaded too long ago
+        boolean isConnected = checkConnection(mConnectivityManager);
+        mEmptyText.setText(isConnected ? R.string.msg_no_news : R.string.msg_no_internet_connection);
+        mViewModel.start(isConnected);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mNewsAdapter.stopRelativeTimeUpdates();
+        // Report how the thumbnail cache did so far
+        Log.i(LOG_TAG, ImageLoader.getInstance(this).getCache().toString());
+        Log.i(LOG_TAG, mSearchScheduler.toString());
+        Log.i(LOG_TAG, HttpCache.getInstance(this).toString());
+        Log.i(LOG_TAG, RequestExecutor.getInstance(this).toString());
+        if (mJankMonitor != null) {
+            Log.i(LOG_TAG, "Scrolling " + mJankMonitor.getTotalStats());
+        }
     }
 
     @Override
@@ -98,20 +181,18 @@ public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<L
         getMenuInflater().inflate(R.menu.menu_main, menu);
 
         MenuItem menuItem = menu.findItem(R.id.app_bar_search);
-        final SearchView searchView = (SearchView) menuItem.getActionView();
+        SearchView searchView = (SearchView) menuItem.getActionView();
         searchView.setQueryHint("Search here!");
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
+                mSearchScheduler.submit(query);
                 return false;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                mGetSearch = searchView.getQuery().toString();
-                getLoaderManager().restartLoader(NEWS_LOADER_ID, null, NewsActivity.this);
-                mTopicText.setText(mTopic);
-                mSwipeContainer.setRefreshing(true);
+                searchLocally(newText);
                 return false;
             }
         });
@@ -129,52 +210,60 @@ public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<L
                 return true;
 
             case R.id.app_bar_refresh:
-                mSwipeContainer.setRefreshing(true);
-                loadData();
+                loadData(true);
                 return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
-    @Override
-    public Loader<List<News>> onCreateLoader(int id, Bundle args) {
-        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
-        String pageSize = sharedPreferences.getString(getString(R.string.settings_page_size_key), getString(R.string.settings_page_size_default));
-        String orderBy = sharedPreferences.getString(getString(R.string.settings_order_by_key), getString(R.string.settings_order_by_default));
-        mTopic = sharedPreferences.getString(getString(R.string.settings_topic_key), getString(R.string.settings_topic_default));
-
-        Uri baseUri = Uri.parse(URL_REQUEST_NEWS);
-        Uri.Builder builder = baseUri.buildUpon();
-
-        builder.appendQueryParameter(getString(R.string.settings_api_key_key), getString(R.string.settings_api_key_default));
-        builder.appendQueryParameter(getString(R.string.settings_page_size_key), pageSize);
-        builder.appendQueryParameter(getString(R.string.settings_order_by_key), orderBy);
-        builder.appendQueryParameter(getString(R.string.settings_show_fields_key), getString(R.string.settings_show_fields_default));
-
-        if (mGetSearch != null && !mGetSearch.isEmpty()) {
-            mTopic = mGetSearch;
-            builder.appendQueryParameter(getString(R.string.settings_topic_key), mTopic);
+    /**
+     * Show the stored news matching the search text at once, and only search the network
+     * once the user pauses typing if too few of them match.
+     */
+    private void searchLocally(String text) {
+        if (text.trim().isEmpty()) {
+            mViewModel.clearLocalResults();
+            mSearchScheduler.onQueryChanged(text);
+            return;
+        }
+        List<News> results = mLocalSearch.search(text, getResources().getInteger(R.integer.local_search_max_results));
+        mViewModel.showLocalResults(text, results);
+        if (results.size() < getResources().getInteger(R.integer.local_search_min_results)) {
+            mSearchScheduler.onQueryChanged(text);
         } else {
-            builder.appendQueryParameter(getString(R.string.settings_topic_key), mTopic);
+            mSearchScheduler.cancel();
         }
-
-        return new NewsLoader(this, builder.toString());
     }
 
-    @Override
-    public void onLoadFinished(Loader<List<News>> loader, List<News> news) {
-        // Hide swipe to reload spinner
-        mSwipeContainer.setRefreshing(false);
+    /**
+     * Show the news of the feed, or the stored news matching the search text while it is
+     * typed. Only the rows that changed since the last time are bound again, the diff is
+     * worked out off the main thread.
+     */
+    private void showNews(NewsViewModel.FeedState state) {
+        mSwipeContainer.setRefreshing(state.isRefreshing());
+        mTopicText.setText(state.getTitle());
+        // Nothing is stored yet while the first fetch is on its way
+        final boolean empty = state.getNews().isEmpty() && !state.isRefreshing();
+        mNewsAdapter.submitList(state.getNews(), new Runnable() {
+            @Override
+            public void run() {
+                mEmptyText.setVisibility(empty ? View.VISIBLE : View.GONE);
+            }
+        });
+    }
 
-        mNewsAdapter.clear();
-        if (news != null && !news.isEmpty()) {
-            mNewsAdapter.addAll(news);
-        }
+    /**
+     * Show the given news as the feed, e.g. to measure scrolling a long list.
+     */
+    @VisibleForTesting
+    void showNews(List<News> news) {
+        mViewModel.showNews(news);
     }
 
-    @Override
-    public void onLoaderReset(Loader<List<News>> loader) {
-        mNewsAdapter.clear();
+    @VisibleForTesting
+    JankMonitor getJankMonitor() {
+        return mJankMonitor;
     }
 
     public boolean checkConnection(ConnectivityManager connectivityManager) {
@@ -184,23 +273,21 @@ public class NewsActivity extends AppCompatActivity implements LoaderCallbacks<L
 
     /**
      * Loads and reloads the data as requested
+     *
+     * @param refresh whether to fetch the feed even if the stored one is fresh
      */
-    public void loadData() {
+    public void loadData(boolean refresh) {
         mConnectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
         assert mConnectivityManager != null;
         boolean isConnected = checkConnection(mConnectivityManager);
+
+        // The stored news are shown either way, and refreshed from the network if connected
+        mViewModel.reload(isConnected, refresh);
         if (isConnected) {
-            getLoaderManager().destroyLoader(NEWS_LOADER_ID);
-            getLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
             mEmptyText.setText(R.string.msg_no_news);
-            mTopicText.setText(mTopic);
-            mSwipeContainer.setRefreshing(true);
         } else {
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            mSwipeContainer.setRefreshing(false);
+            // Otherwise, display error if nothing is stored
             mEmptyText.setText(R.string.msg_no_internet_connection);
-            mNewsAdapter.clear();
         }
     }
 }
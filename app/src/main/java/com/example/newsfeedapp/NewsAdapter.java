@@ -1,113 +1,281 @@
 package com.example.newsfeedapp;
 
 import android.content.Context;
-import android.graphics.Bitmap;
+import android.os.Handler;
+import android.text.format.DateUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.constraintlayout.widget.Group;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
+import java.util.List;
 
-public class NewsAdapter extends ArrayAdapter<News> {
+public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.ViewHolder> {
 
-    Group group;
+    /**
+     * Interface for receiving clicks on the news of the feed
+     */
+    public interface OnNewsClickListener {
+        void onNewsClick(News news);
+    }
+
+    /**
+     * News are the same article when they link to the same page, and only need to be bound
+     * again when something shown of them changed.
+     */
+    private static final DiffUtil.ItemCallback<News> DIFF_CALLBACK = new DiffUtil.ItemCallback<News>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull News oldNews, @NonNull News newNews) {
+            return oldNews.getWebUrl() != null && oldNews.getWebUrl().equals(newNews.getWebUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull News oldNews, @NonNull News newNews) {
+            return oldNews.equals(newNews);
+        }
+    };
+
+    /**
+     * Payload of the changes that only move the relative publication times on
+     */
+    private static final Object PAYLOAD_RELATIVE_TIME = new Object();
 
-    NewsAdapter(@NonNull Context context, ArrayList<News> news) {
-        super(context, 0, news);
+    private final LayoutInflater mInflater;
+    private final ImageLoader mImageLoader;
+    private final TextPrecomputer mTextPrecomputer;
+    // Whether the title and trail text are prepared in the background before they are bound
+    private boolean mPrecomputeText;
+    private final OnNewsClickListener mListener;
+    // Diffs a submitted list against the shown one on a background thread, and only
+    // notifies the rows that were inserted, removed, moved or changed
+    private final AsyncListDiffer<News> mDiffer = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private RecyclerView mRecyclerView;
+    private final int mPrefetchRows;
+    // Row the thumbnails ahead were last prefetched from, so they are looked up once per row
+    // scrolled instead of once per frame
+    private int mPrefetchedFrom = RecyclerView.NO_POSITION;
+    private final Handler mHandler = new Handler();
+    private final Runnable mRelativeTimeTick = new Runnable() {
+        @Override
+        public void run() {
+            // Only the time labels of the rows are bound again, nothing is parsed
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_RELATIVE_TIME);
+            mHandler.postDelayed(this, DateUtils.MINUTE_IN_MILLIS);
+        }
+    };
+
+    NewsAdapter(@NonNull Context context, OnNewsClickListener listener) {
+        mInflater = LayoutInflater.from(context);
+        mImageLoader = ImageLoader.getInstance(context);
+        mTextPrecomputer = TextPrecomputer.getInstance(context);
+        mListener = listener;
+        mPrefetchRows = context.getResources().getInteger(R.integer.thumbnail_prefetch_rows);
     }
 
-    @NonNull
-    @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+    /**
+     * Show the news, once they have been diffed against the news shown now.
+     *
+     * @param news      news to show, not modified afterwards
+     * @param committed run once the news are shown
+     */
+    public void submitList(List<News> news, Runnable committed) {
+        if (mPrecomputeText && news != null) {
+            mTextPrecomputer.prepare(news);
+        }
+        mDiffer.submitList(news, committed);
+    }
 
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_itme_news, parent, false);
+    /**
+     * Set whether the title and trail text of the rows are prepared in the background. The bind
+     * times measured so far are dropped when this changes, to compare the two.
+     */
+    public void setPrecomputeText(boolean precomputeText) {
+        if (mPrecomputeText == precomputeText) {
+            return;
         }
+        mPrecomputeText = precomputeText;
+        Metrics.BIND_MICROS.reset();
+        if (precomputeText) {
+            mTextPrecomputer.prepare(mDiffer.getCurrentList());
+        }
+    }
 
-        News currentNews = getItem(position);
-        group = convertView.findViewById(R.id.group);
+    public List<News> getCurrentList() {
+        return mDiffer.getCurrentList();
+    }
 
-        // Get and display the article's thumbnail
-        ImageView thumbnailImage = convertView.findViewById(R.id.image_thumbnail);
-        assert currentNews != null;
-        Bitmap thumbnail = currentNews.getThumbnail();
-        if (thumbnail != null) {
-            thumbnailImage.setImageBitmap(currentNews.getThumbnail());
-        } else {
-            group.setVisibility(View.INVISIBLE);
+    /**
+     * Keep the relative publication times (i.e. "5 min ago") up to date while the feed is shown.
+     */
+    public void startRelativeTimeUpdates() {
+        mHandler.removeCallbacks(mRelativeTimeTick);
+        mHandler.postDelayed(mRelativeTimeTick, DateUtils.MINUTE_IN_MILLIS);
+    }
+
+    public void stopRelativeTimeUpdates() {
+        mHandler.removeCallbacks(mRelativeTimeTick);
+    }
 
+    /**
+     * Fetch the thumbnails of the visible rows first, then of the few rows about to be scrolled
+     * into view.
+     *
+     * @param direction positive when scrolling down, negative when scrolling up, 0 if unknown
+     */
+    public void onViewportChanged(int firstVisible, int lastVisible, int direction) {
+        if (firstVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+        mImageLoader.setViewport(firstVisible, lastVisible, direction);
+        int edge = direction > 0 ? lastVisible : firstVisible;
+        if (direction == 0 || mRecyclerView == null || edge == mPrefetchedFrom) {
+            return;
         }
+        mPrefetchedFrom = edge;
+        List<News> news = mDiffer.getCurrentList();
+        for (int i = 1; i <= mPrefetchRows; i++) {
+            int position = direction > 0 ? edge + i : edge - i;
+            if (position < 0 || position >= news.size()) {
+                break;
+            }
+            String thumbnailUrl = news.get(position).getThumbnailUrl();
+            if (thumbnailUrl != null) {
+                mImageLoader.prefetch(thumbnailUrl, mRecyclerView.getWidth(), position);
+            }
+        }
+    }
 
-        // Get and display the article's web title
-        TextView webTitleText = convertView.findViewById(R.id.text_web_title);
-        webTitleText.setText(currentNews.getWebTitle());
+    @Override
+    public int getItemCount() {
+        return mDiffer.getCurrentList().size();
+    }
 
-        // Get and display the article's trail text
-        TextView trailText = convertView.findViewById(R.id.text_trail_text);
-        trailText.setText(currentNews.getTrailText());
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
 
-        // Get and display the article's byline
-        TextView byline = convertView.findViewById(R.id.text_byline);
-        byline.setText(currentNews.getByline());
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = null;
+    }
 
-        // Get and display the article's section name
-        TextView sectionName = convertView.findViewById(R.id.text_section_name);
-        sectionName.setText(currentNews.getSectionName());
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        final ViewHolder holder = new ViewHolder(mInflater.inflate(R.layout.list_itme_news, parent, false));
+        if (mPrecomputeText && mTextPrecomputer.setTextViews(holder.webTitleText, holder.trailText)) {
+            // The text is measured with the paint of the rows, known once a row is inflated
+            mTextPrecomputer.prepare(mDiffer.getCurrentList());
+        }
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && mListener != null) {
+                    mListener.onNewsClick(mDiffer.getCurrentList().get(position));
+                }
+            }
+        });
+        return holder;
+    }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        long start = System.nanoTime();
+        News currentNews = mDiffer.getCurrentList().get(position);
 
-        // Get and display the article's web publication date
-        TextView webPublicationDate = convertView.findViewById(R.id.text_web_publication_date);
-        webPublicationDate.setText(formatDateString(currentNews.getWebPublicationDate()));
+        // Get and display the article's thumbnail
+        String thumbnailUrl = currentNews.getThumbnailUrl();
+        if (thumbnailUrl != null) {
+            // Show the placeholder until the thumbnail arrives from the image loader,
+            // which binds it right away when it is already in the thumbnail cache
+            holder.group.setVisibility(View.VISIBLE);
+            holder.thumbnailImage.setImageResource(R.drawable.image_news);
+            // The thumbnail spans the row, so a row that has not been laid out yet
+            // will be as wide as the list
+            int width = holder.thumbnailImage.getWidth();
+            if (width == 0 && mRecyclerView != null) {
+                width = mRecyclerView.getWidth();
+            }
+            mImageLoader.load(thumbnailUrl, holder.thumbnailImage, width, position);
+        } else {
+            holder.group.setVisibility(View.INVISIBLE);
+            mImageLoader.cancel(holder.thumbnailImage);
+        }
 
-        // Get and display the article's web publication time
-        TextView webPublicationTime = convertView.findViewById(R.id.text_web_publication_time);
-        webPublicationTime.setText(formatTimeString(currentNews.getWebPublicationDate()));
+        if (mPrecomputeText) {
+            mTextPrecomputer.bind(currentNews, holder.webTitleText, holder.trailText);
+        } else {
+            holder.webTitleText.setText(currentNews.getWebTitle());
+            holder.trailText.setText(TextPrecomputer.sanitize(currentNews.getTrailText()));
+        }
+        holder.bylineText.setText(currentNews.getByline());
+        holder.sectionNameText.setText(currentNews.getSectionName());
+        holder.webPublicationDateText.setText(PublicationTime.formatDate(currentNews.getWebPublicationTime()));
+        bindTime(holder, currentNews);
+        Metrics.BIND_MICROS.record((System.nanoTime() - start) / 1000);
+    }
 
-        return convertView;
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_RELATIVE_TIME) {
+            bindTime(holder, mDiffer.getCurrentList().get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // The row scrolled out of view, its thumbnail is not fetched any more unless another
+        // row waits for it
+        mImageLoader.cancel(holder.thumbnailImage);
     }
 
     /**
-     * Return a formatted time string (i.e. "Mar 3, '18") from a Date object.
+     * Show how long ago a recent article was published, and the time of day of an older one.
      */
-    private String formatDateString(String date) {
-        final SimpleDateFormat inputParser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
-
-        Date dateOut = null;
-        try {
-            dateOut = inputParser.parse(date);
-        } catch (final ParseException e) {
-            e.printStackTrace();
+    private static void bindTime(ViewHolder holder, News news) {
+        long time = news.getWebPublicationTime();
+        long now = System.currentTimeMillis();
+        if (PublicationTime.isRecent(time, now)) {
+            holder.webPublicationTimeText.setText(DateUtils.getRelativeTimeSpanString(time, now, DateUtils.MINUTE_IN_MILLIS));
+        } else {
+            holder.webPublicationTimeText.setText(PublicationTime.formatTime(time));
         }
-        final SimpleDateFormat outputFormatter = new SimpleDateFormat("MMM dd ''yy", Locale.US);
-        assert dateOut != null;
-        return outputFormatter.format(dateOut);
     }
 
     /**
-     * Return a formatted date string (i.e. "4:30 PM") from a Date object.
+     * Holds the views of a row, so they are looked up once per row instead of once per bind.
      */
-    private String formatTimeString(String date) {
-        final SimpleDateFormat inputParser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
-
-        Date dateOut = null;
-        try {
-            dateOut = inputParser.parse(date);
-        } catch (final ParseException e) {
-            e.printStackTrace();
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final Group group;
+        final ImageView thumbnailImage;
+        final TextView webTitleText;
+        final TextView trailText;
+        final TextView bylineText;
+        final TextView sectionNameText;
+        final TextView webPublicationDateText;
+        final TextView webPublicationTimeText;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            group = itemView.findViewById(R.id.group);
+            thumbnailImage = itemView.findViewById(R.id.image_thumbnail);
+            webTitleText = itemView.findViewById(R.id.text_web_title);
+            trailText = itemView.findViewById(R.id.text_trail_text);
+            bylineText = itemView.findViewById(R.id.text_byline);
+            sectionNameText = itemView.findViewById(R.id.text_section_name);
+            webPublicationDateText = itemView.findViewById(R.id.text_web_publication_date);
+            webPublicationTimeText = itemView.findViewById(R.id.text_web_publication_time);
         }
-        final SimpleDateFormat outputFormatter = new SimpleDateFormat("h:mm a", Locale.US);
-        assert dateOut != null;
-        return outputFormatter.format(dateOut);
     }
 }
@@ -3,32 +3,113 @@ package com.example.newsfeedapp;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
-
-import android.content.AsyncTaskLoader;
 
 import java.util.List;
 
-public class NewsLoader extends AsyncTaskLoader<List<News>> {
+/**
+ * Loads the news of a query stale-while-revalidate: the copy in the {@link NewsStore} is
+ * published first, then the query is fetched from the network and the store reconciled.
+ * A copy fetched recently enough, e.g. by the {@link FeedSyncWorker}, is not fetched again,
+ * and a query ordered newest first only fetches the news newer than the copy.
+ */
+public class NewsLoader implements FeedPipeline.Job {
+
+    private final Context mContext;
+    private final String mUrl;
+    private final String mQueryKey;
+    private final boolean mNewestFirst;
+    private final int mPageSize;
+    private final boolean mOnline;
+    private final boolean mRefresh;
+    private final long mFreshMillis;
+    private final NewsStore mStore;
+    private final RequestHandle mRequest = new RequestHandle();
 
-    private String mUrl;
+    /**
+     * Constructs a new {@link NewsLoader}
+     *
+     * @param context  Context of the loader
+     * @param url      Request url of the query
+     * @param queryKey Key the results of the query are stored under, or null to skip the store
+     * @param online   Whether the query can be fetched from the network
+     * @param refresh  Whether to fetch the query even if the stored copy is fresh
+     */
+    public NewsLoader(@NonNull Context context, String url, String queryKey, boolean online, boolean refresh) {
+        this(context, url, queryKey, false, 0, online, refresh);
+    }
 
-    public NewsLoader(@NonNull Context context, String url) {
-        super(context);
+    /**
+     * Constructs a new {@link NewsLoader} of the first page of a query, stored under the key
+     * of the query.
+     */
+    public NewsLoader(@NonNull Context context, NewsQuery query, boolean online, boolean refresh) {
+        this(context, query.toUrl(context, 1), query.getKey(), query.isNewestFirst(), query.getPageSize(context),
+                online, refresh);
+    }
+
+    private NewsLoader(@NonNull Context context, String url, String queryKey, boolean newestFirst, int pageSize,
+                       boolean online, boolean refresh) {
+        this.mContext = context.getApplicationContext();
         this.mUrl = url;
+        this.mQueryKey = queryKey;
+        this.mNewestFirst = newestFirst;
+        this.mPageSize = pageSize;
+        this.mOnline = online;
+        this.mRefresh = refresh;
+        this.mFreshMillis = context.getResources().getInteger(R.integer.feed_fresh_minutes) * 60 * 1000L;
+        this.mStore = NewsStore.getInstance(context);
     }
 
     @Override
-    protected void onStartLoading() {
-        forceLoad();
+    public void run(FeedPipeline.Publisher publisher) {
+        if (mUrl == null || mRequest.isCancelled()) {
+            return;
+        }
+
+        // Show whatever is stored for the query first, then revalidate it from the network
+        List<News> stored = null;
+        if (mQueryKey != null) {
+            NewsCodec.Snapshot snapshot = mStore.loadSnapshot(mQueryKey);
+            stored = snapshot.getNews();
+            long age = System.currentTimeMillis() - snapshot.getFetchedAt();
+            if (!stored.isEmpty() && !mRefresh && age < mFreshMillis) {
+                publisher.publish(stored, true);
+                return;
+            }
+            // Also when nothing is stored, so the feed knows a fetch is on its way
+            publisher.publish(stored, !mOnline);
+        }
+        if (!mOnline) {
+            if (mQueryKey == null) {
+                publisher.publish(null, true);
+            }
+            return;
+        }
+
+        HttpCache httpCache = HttpCache.getInstance(mContext);
+        List<News> news = mQueryKey != null
+                ? new DeltaRefresh(mContext).fetch(mUrl, mNewestFirst, mPageSize, stored, mRequest)
+                : RequestExecutor.getInstance(mContext).fetchNewsData(mUrl, mRequest, httpCache);
+        if (news == null) {
+            if (mRequest.isCancelled()) {
+                return;
+            }
+            // Keep showing the stored copy when the network lets us down, or the last
+            // response for pages that are not stored
+            publisher.publish(mQueryKey != null ? stored : QueryUtils.readStaleNewsData(mUrl, httpCache), true);
+            return;
+        }
+        if (mQueryKey != null) {
+            mStore.save(mQueryKey, news);
+        }
+        publisher.publish(news, true);
     }
 
-    @Nullable
+    /**
+     * Abort the request of this loader, e.g. when a newer search supersedes it.
+     */
     @Override
-    public List<News> loadInBackground() {
-        if (mUrl == null) {
-            return null;
-        }
-        return QueryUtils.fetchNewsData(mUrl);
+    public void cancel() {
+        mRequest.cancel();
     }
 }
@@ -0,0 +1,147 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A query of the Guardian search API, as set up in the settings of the feed. Both the feed
+ * and the background sync build their requests from it, so they share what they store.
+ */
+public class NewsQuery {
+
+    private static final String URL_REQUEST_NEWS = "https://content.guardianapis.com/search";
+
+    /**
+     * Order of the API that puts the latest news first
+     */
+    private static final String ORDER_BY_NEWEST = "newest";
+
+    private final String mTopic;
+    private final String mOrderBy;
+    private final String mPageSize;
+    private final String mSearch;
+
+    /**
+     * Constructs a new {@link NewsQuery}
+     *
+     * @param topic    Topic of the query
+     * @param orderBy  Order of the results
+     * @param pageSize Number of results per page
+     * @param search   Text searched for instead of the topic, or null
+     */
+    public NewsQuery(String topic, String orderBy, String pageSize, String search) {
+        this.mTopic = topic;
+        this.mOrderBy = orderBy;
+        this.mPageSize = pageSize;
+        this.mSearch = search;
+    }
+
+    /**
+     * Return the query of the topic, order and page size set in the settings.
+     */
+    public static NewsQuery fromSettings(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        String pageSize = sharedPreferences.getString(context.getString(R.string.settings_page_size_key), context.getString(R.string.settings_page_size_default));
+        String orderBy = sharedPreferences.getString(context.getString(R.string.settings_order_by_key), context.getString(R.string.settings_order_by_default));
+        String topic = sharedPreferences.getString(context.getString(R.string.settings_topic_key), context.getString(R.string.settings_topic_default));
+        return new NewsQuery(topic, orderBy, pageSize, null);
+    }
+
+    /**
+     * Return whether the feed merges the topics selected for "My feed" instead of showing one.
+     */
+    public static boolean isMyFeed(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        return sharedPreferences.getBoolean(context.getString(R.string.settings_my_feed_key),
+                context.getResources().getBoolean(R.bool.settings_my_feed_default));
+    }
+
+    /**
+     * Return a query for each topic selected for "My feed", in the order and page size of
+     * the settings.
+     */
+    public static List<NewsQuery> myFeedFromSettings(Context context) {
+        NewsQuery settings = fromSettings(context);
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        Set<String> defaultTopics = new HashSet<>(Arrays.asList(
+                context.getResources().getStringArray(R.array.settings_my_feed_topics_default)));
+        Set<String> topics = sharedPreferences.getStringSet(context.getString(R.string.settings_my_feed_topics_key), defaultTopics);
+
+        // Keep the order of the topic list, the set has none
+        List<NewsQuery> queries = new ArrayList<>();
+        for (String topic : context.getResources().getStringArray(R.array.settings_topic_values)) {
+            if (topics.contains(topic)) {
+                queries.add(new NewsQuery(topic, settings.mOrderBy, settings.mPageSize, null));
+            }
+        }
+        if (queries.isEmpty()) {
+            queries.add(settings);
+        }
+        return queries;
+    }
+
+    /**
+     * Return the same query searching for the given text, or for the topic if there is none.
+     */
+    public NewsQuery withSearch(String search) {
+        return new NewsQuery(mTopic, mOrderBy, mPageSize, search);
+    }
+
+    /**
+     * Return what the query looks for, the searched text or else the topic.
+     */
+    public String getTitle() {
+        return mSearch != null && !mSearch.isEmpty() ? mSearch : mTopic;
+    }
+
+    /**
+     * Return whether the latest news come first, so a refresh only needs the news published
+     * since the last one.
+     */
+    public boolean isNewestFirst() {
+        return ORDER_BY_NEWEST.equals(mOrderBy);
+    }
+
+    public int getPageSize(Context context) {
+        try {
+            return Integer.parseInt(mPageSize);
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(context.getString(R.string.settings_page_size_default));
+        }
+    }
+
+    /**
+     * Return the key the results of the query are stored under.
+     */
+    public String getKey() {
+        return NewsStore.queryKey(mTopic, mOrderBy, mPageSize, mSearch);
+    }
+
+    /**
+     * Return the request url of a page of the results.
+     *
+     * @param page number of the page, starting at 1
+     */
+    public String toUrl(Context context, int page) {
+        Uri baseUri = Uri.parse(URL_REQUEST_NEWS);
+        Uri.Builder builder = baseUri.buildUpon();
+
+        builder.appendQueryParameter(context.getString(R.string.settings_api_key_key), context.getString(R.string.settings_api_key_default));
+        builder.appendQueryParameter(context.getString(R.string.settings_page_size_key), mPageSize);
+        builder.appendQueryParameter(context.getString(R.string.settings_order_by_key), mOrderBy);
+        builder.appendQueryParameter(context.getString(R.string.settings_show_fields_key), context.getString(R.string.settings_show_fields_default));
+        if (page > 1) {
+            builder.appendQueryParameter(context.getString(R.string.settings_page_key), String.valueOf(page));
+        }
+        builder.appendQueryParameter(context.getString(R.string.settings_topic_key), getTitle());
+        return builder.toString();
+    }
+}
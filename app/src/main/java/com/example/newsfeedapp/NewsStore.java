@@ -0,0 +1,313 @@
+package com.example.newsfeedapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local store of the {@link News} last fetched for each query, so the feed can be shown
+ * before, or without, a network round-trip. Next to the database, the news of each query are
+ * kept in a {@link NewsCodec} snapshot file, which restores them on a cold start without
+ * opening the database.
+ */
+public class NewsStore extends SQLiteOpenHelper {
+
+    private static final String LOG_TAG = NewsStore.class.getSimpleName();
+
+    private static final String DATABASE_NAME = "news.db";
+    private static final int DATABASE_VERSION = 2;
+
+    /**
+     * Results of queries not refreshed for this long are dropped, 7 days
+     */
+    private static final long RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Snapshots kept at most, the least recently written are deleted
+     */
+    private static final int MAX_SNAPSHOTS = 32;
+
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final String TABLE_NEWS = "news";
+    private static final String COLUMN_QUERY_KEY = "query_key";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+    private static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+    private static final String COLUMN_WEB_TITLE = "web_title";
+    private static final String COLUMN_TRAIL_TEXT = "trail_text";
+    private static final String COLUMN_BYLINE = "byline";
+    private static final String COLUMN_SECTION_NAME = "section_name";
+    private static final String COLUMN_WEB_PUBLICATION_TIME = "web_publication_time";
+    private static final String COLUMN_WEB_URL = "web_url";
+
+    private static final String[] NEWS_COLUMNS = {
+            COLUMN_THUMBNAIL_URL,
+            COLUMN_WEB_TITLE,
+            COLUMN_TRAIL_TEXT,
+            COLUMN_BYLINE,
+            COLUMN_SECTION_NAME,
+            COLUMN_WEB_PUBLICATION_TIME,
+            COLUMN_WEB_URL
+    };
+
+    private static NewsStore sInstance;
+
+    private final Context mContext;
+    private final File mSnapshotDirectory;
+
+    private NewsStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        mContext = context;
+        mSnapshotDirectory = new File(context.getCacheDir(), "snapshots");
+    }
+
+    public static synchronized NewsStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the key the results of a query are stored under.
+     *
+     * @param topic    Topic of the query
+     * @param orderBy  Order of the results
+     * @param pageSize Number of results
+     * @param search   Text searched for, or null
+     */
+    public static String queryKey(String topic, String orderBy, String pageSize, String search) {
+        return topic + "|" + orderBy + "|" + pageSize + "|" + (search == null ? "" : search);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_NEWS + " ("
+                + COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + COLUMN_THUMBNAIL_URL + " TEXT, "
+                + COLUMN_WEB_TITLE + " TEXT, "
+                + COLUMN_TRAIL_TEXT + " TEXT, "
+                + COLUMN_BYLINE + " TEXT, "
+                + COLUMN_SECTION_NAME + " TEXT, "
+                + COLUMN_WEB_PUBLICATION_TIME + " INTEGER NOT NULL, "
+                + COLUMN_WEB_URL + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_QUERY_KEY + ", " + COLUMN_POSITION + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only holds copies of fetched results, so it can simply be rebuilt
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NEWS);
+        onCreate(db);
+    }
+
+    /**
+     * Return the news stored for the query, in the order they were fetched in.
+     */
+    public List<News> load(String queryKey) {
+        Cursor cursor = getReadableDatabase().query(TABLE_NEWS, NEWS_COLUMNS,
+                COLUMN_QUERY_KEY + " = ?", new String[]{queryKey},
+                null, null, COLUMN_POSITION);
+        return readNews(cursor);
+    }
+
+    /**
+     * Return the news stored for every query, the most recently fetched last.
+     */
+    public List<News> loadAll() {
+        Cursor cursor = getReadableDatabase().query(TABLE_NEWS, NEWS_COLUMNS,
+                null, null, null, null, COLUMN_FETCHED_AT + ", " + COLUMN_POSITION);
+        return readNews(cursor);
+    }
+
+    private static List<News> readNews(Cursor cursor) {
+        List<News> newsList = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                newsList.add(new News(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getString(4),
+                        cursor.getLong(5),
+                        cursor.getString(6)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return newsList;
+    }
+
+    /**
+     * Return the urls of the news stored for every query.
+     */
+    public Set<String> loadUrls() {
+        Cursor cursor = getReadableDatabase().query(true, TABLE_NEWS, new String[]{COLUMN_WEB_URL},
+                null, null, null, null, null, null);
+        Set<String> urls = new HashSet<>();
+        try {
+            while (cursor.moveToNext()) {
+                urls.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return urls;
+    }
+
+    /**
+     * Return the news stored for the query and when they were fetched, read from the snapshot
+     * of the query if there is one and from the database otherwise.
+     */
+    public NewsCodec.Snapshot loadSnapshot(String queryKey) {
+        File file = snapshotFile(queryKey);
+        if (file.exists()) {
+            try {
+                NewsCodec.Snapshot snapshot = readSnapshot(file);
+                if (System.currentTimeMillis() - snapshot.getFetchedAt() < RETENTION_MILLIS) {
+                    return snapshot;
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Problem reading the snapshot of " + queryKey, e);
+            }
+            file.delete();
+        }
+        return new NewsCodec.Snapshot(getFetchedAt(queryKey), load(queryKey));
+    }
+
+    /**
+     * Map the snapshot file into memory and read the news straight out of it.
+     */
+    private static NewsCodec.Snapshot readSnapshot(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return NewsCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Write the snapshot of the query. It is written to a file of its own first, so a reader
+     * never sees half of it.
+     */
+    private void writeSnapshot(String queryKey, long fetchedAt, List<News> newsList) throws IOException {
+        if (!mSnapshotDirectory.exists() && !mSnapshotDirectory.mkdirs()) {
+            throw new IOException("Can't create " + mSnapshotDirectory);
+        }
+        File tempFile = File.createTempFile("snapshot", ".tmp", mSnapshotDirectory);
+        OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            NewsCodec.write(fetchedAt, newsList, outputStream);
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(snapshotFile(queryKey))) {
+            tempFile.delete();
+            throw new IOException("Can't write the snapshot of " + queryKey);
+        }
+        trimSnapshots();
+    }
+
+    /**
+     * Delete the least recently written snapshots beyond the cap.
+     */
+    private void trimSnapshots() {
+        File[] snapshots = mSnapshotDirectory.listFiles();
+        if (snapshots == null || snapshots.length <= MAX_SNAPSHOTS) {
+            return;
+        }
+        Arrays.sort(snapshots, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified > secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (int i = MAX_SNAPSHOTS; i < snapshots.length; i++) {
+            snapshots[i].delete();
+        }
+    }
+
+    private File snapshotFile(String queryKey) {
+        return new File(mSnapshotDirectory, DiskCache.keyFor(queryKey) + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Return when the news stored for the query were fetched, or 0 if none are stored.
+     */
+    public long getFetchedAt(String queryKey) {
+        Cursor cursor = getReadableDatabase().query(TABLE_NEWS, new String[]{"MAX(" + COLUMN_FETCHED_AT + ")"},
+                COLUMN_QUERY_KEY + " = ?", new String[]{queryKey},
+                null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Replace the news stored for the query with freshly fetched ones.
+     */
+    public void save(String queryKey, List<News> newsList) {
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_NEWS, COLUMN_QUERY_KEY + " = ? OR " + COLUMN_FETCHED_AT + " < ?",
+                    new String[]{queryKey, String.valueOf(now - RETENTION_MILLIS)});
+
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < newsList.size(); i++) {
+                News news = newsList.get(i);
+                values.put(COLUMN_QUERY_KEY, queryKey);
+                values.put(COLUMN_POSITION, i);
+                values.put(COLUMN_FETCHED_AT, now);
+                values.put(COLUMN_THUMBNAIL_URL, news.getThumbnailUrl());
+                values.put(COLUMN_WEB_TITLE, news.getWebTitle());
+                values.put(COLUMN_TRAIL_TEXT, news.getTrailText());
+                values.put(COLUMN_BYLINE, news.getByline());
+                values.put(COLUMN_SECTION_NAME, news.getSectionName());
+                values.put(COLUMN_WEB_PUBLICATION_TIME, news.getWebPublicationTime());
+                values.put(COLUMN_WEB_URL, news.getWebUrl());
+                db.insert(TABLE_NEWS, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        try {
+            writeSnapshot(queryKey, now, newsList);
+        } catch (IOException e) {
+            // The snapshot left holds the news replaced, read the database instead
+            Log.w(LOG_TAG, "Problem writing the snapshot of " + queryKey, e);
+            snapshotFile(queryKey).delete();
+        }
+        // Stored news can be found by the local search right away, and the news replaced or
+        // past retention can't
+        LocalSearch.getInstance(mContext).update(newsList);
+    }
+}
@@ -0,0 +1,438 @@
+package com.example.newsfeedapp;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the feed across configuration changes. The news are loaded by a {@link FeedPipeline}
+ * on a bounded background executor and handed to the activity as {@link FeedState} updates, so
+ * a rotated activity is shown the news already loaded instead of fetching them again.
+ */
+public class NewsViewModel extends AndroidViewModel {
+
+    /**
+     * Loads running at the same time, the feed and a page of it
+     */
+    private static final int LOAD_THREADS = 2;
+
+    /**
+     * Loads waiting for a thread at most, more are refused
+     */
+    private static final int LOAD_QUEUE_CAPACITY = 8;
+
+    private static ThreadPoolExecutor sExecutor;
+
+    private final MutableLiveData<FeedState> mState = new MutableLiveData<>();
+    private final FeedPipeline mFeed;
+    private final FeedPipeline mPages;
+    private final FeedPages mFeedPages;
+    private final ArrayList<News> mNews = new ArrayList<>();
+    private String mSearch;
+    private String mTitle;
+    // Key of the feed being loaded, and of the feed in the list
+    private String mFeedKey;
+    private String mShownKey;
+    private int mPageSize;
+    private boolean mMyFeed;
+    private boolean mRefreshing;
+    private boolean mHasNextPage;
+    private boolean mPageLoading;
+    private boolean mPendingPageAppend;
+    // Whether the feed being loaded can be fetched, and the last one loaded could, and when
+    // it finished loading, 0 while it loads
+    private boolean mLoadOnline;
+    private boolean mLoadedOnline;
+    private long mLoadedAtMillis;
+
+    // Stored news matching the text being typed, shown until the search of the network is in
+    private String mLocalQuery;
+    private List<News> mLocalResults;
+    private boolean mShowLocalResults;
+
+    /**
+     * What the feed shows.
+     */
+    public static class FeedState {
+        private final List<News> mNews;
+        private final String mTitle;
+        private final boolean mRefreshing;
+
+        FeedState(List<News> news, String title, boolean refreshing) {
+            this.mNews = news;
+            this.mTitle = title;
+            this.mRefreshing = refreshing;
+        }
+
+        /**
+         * Return the news to show, not modified afterwards.
+         */
+        public List<News> getNews() {
+            return mNews;
+        }
+
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /**
+         * Return whether more news follow, from the network or the topics still loading.
+         */
+        public boolean isRefreshing() {
+            return mRefreshing;
+        }
+    }
+
+    public NewsViewModel(@NonNull Application application) {
+        super(application);
+        mFeedPages = new FeedPages(application.getResources().getInteger(R.integer.max_pages_in_memory));
+        Executor mainThread = new Executor() {
+            private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(@NonNull Runnable command) {
+                mHandler.post(command);
+            }
+        };
+        mFeed = new FeedPipeline(getExecutor(), mainThread, new FeedPipeline.Listener() {
+            @Override
+            public void onNews(List<News> news, boolean done) {
+                onFeedLoaded(news, done);
+            }
+
+            @Override
+            public void onRefused() {
+                // The news shown stay, a pull to refresh or the next start tries again
+                mRefreshing = false;
+                publish();
+            }
+        });
+        mPages = new FeedPipeline(getExecutor(), mainThread, new FeedPipeline.Listener() {
+            @Override
+            public void onNews(List<News> news, boolean done) {
+                onPageLoaded(news);
+            }
+
+            @Override
+            public void onRefused() {
+                // The page is tried again on the next scroll
+                mPageLoading = false;
+            }
+        });
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (sExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            sExecutor = new ThreadPoolExecutor(LOAD_THREADS, LOAD_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(LOAD_QUEUE_CAPACITY), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Stay out of the way of the main thread
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "feed-load-" + count.incrementAndGet());
+                }
+            });
+            sExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sExecutor;
+    }
+
+    public LiveData<FeedState> getState() {
+        return mState;
+    }
+
+    /**
+     * Load the feed, unless it is loading already or was loaded recently from the network, e.g.
+     * for the activity recreated after a rotation. A feed loaded offline is loaded again once
+     * the device is online, and one loaded longer ago than the stored news stay fresh is
+     * loaded again when the user comes back to the app.
+     *
+     * @param online whether the feed can be fetched from the network
+     */
+    public void start(boolean online) {
+        long freshMillis = getApplication().getResources().getInteger(R.integer.feed_fresh_minutes) * 60 * 1000L;
+        boolean stale = mLoadedAtMillis != 0 && ((online && !mLoadedOnline)
+                || SystemClock.elapsedRealtime() - mLoadedAtMillis >= freshMillis);
+        load(online, false, stale);
+    }
+
+    /**
+     * Load the feed again.
+     *
+     * @param online  whether the feed can be fetched from the network
+     * @param refresh whether to fetch the feed even if the stored one is fresh
+     */
+    public void reload(boolean online, boolean refresh) {
+        load(online, refresh, true);
+    }
+
+    /**
+     * Search for the text instead of the topic, or show the topic again if it is empty.
+     */
+    public void search(String search, boolean online) {
+        mSearch = search;
+        load(online, false, false);
+    }
+
+    private void load(boolean online, boolean refresh, boolean force) {
+        NewsQuery query = NewsQuery.fromSettings(getApplication()).withSearch(mSearch);
+        mPageSize = query.getPageSize(getApplication());
+
+        // A search looks through everything, not only the topics of My feed
+        mMyFeed = NewsQuery.isMyFeed(getApplication()) && (mSearch == null || mSearch.isEmpty());
+        FeedPipeline.Job job;
+        String key;
+        if (mMyFeed) {
+            mTitle = getApplication().getString(R.string.settings_my_feed_label);
+            List<NewsQuery> queries = NewsQuery.myFeedFromSettings(getApplication());
+            job = new MyFeedLoader(getApplication(), queries, online, refresh);
+            StringBuilder keys = new StringBuilder();
+            for (NewsQuery topic : queries) {
+                keys.append(topic.getKey()).append(';');
+            }
+            key = keys.toString();
+        } else {
+            mTitle = query.getTitle();
+            job = new NewsLoader(getApplication(), query, online, refresh);
+            key = query.getKey();
+        }
+        if (mFeed.load(key, job, force)) {
+            mFeedKey = key;
+            mLoadOnline = online;
+            mLoadedAtMillis = 0;
+            mRefreshing = online;
+            publish();
+        }
+    }
+
+    /**
+     * Load the next or the previous page when the list is scrolled close to its end or its
+     * start.
+     *
+     * @param firstVisible     position of the first visible row
+     * @param lastVisible      position of the last visible row
+     * @param prefetchDistance rows left before an end of the list when a page is loaded
+     */
+    public void onScrolled(int firstVisible, int lastVisible, int prefetchDistance) {
+        if (mNews.isEmpty() || mPageLoading || mShowLocalResults) {
+            return;
+        }
+        if (mHasNextPage && lastVisible >= mNews.size() - 1 - prefetchDistance) {
+            loadPage(mFeedPages.getNextPage(), true);
+        } else if (mFeedPages.getPreviousPage() > 0 && firstVisible <= prefetchDistance) {
+            loadPage(mFeedPages.getPreviousPage(), false);
+        }
+    }
+
+    /**
+     * Fetch a page of the feed to add before or after the pages in the list.
+     *
+     * @param page   number of the page
+     * @param append whether the page goes after the pages in the list
+     */
+    private void loadPage(int page, boolean append) {
+        mPageLoading = true;
+        mPendingPageAppend = append;
+        ConnectivityManager connectivityManager = (ConnectivityManager) getApplication().getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        boolean online = networkInfo != null && networkInfo.isConnectedOrConnecting();
+        NewsQuery query = NewsQuery.fromSettings(getApplication()).withSearch(mSearch);
+        // Only the first page is stored, later pages always come from the network
+        mPages.load(String.valueOf(page), new NewsLoader(getApplication(), query.toUrl(getApplication(), page),
+                null, online, false), true);
+    }
+
+    /**
+     * Show the stored news matching the text being typed in place of the feed.
+     */
+    public void showLocalResults(String query, List<News> results) {
+        mLocalQuery = query;
+        mLocalResults = results;
+        mShowLocalResults = true;
+        publish();
+    }
+
+    public void clearLocalResults() {
+        mLocalQuery = null;
+        mLocalResults = null;
+        mShowLocalResults = false;
+        publish();
+    }
+
+    /**
+     * Show the given news as the feed, e.g. to measure scrolling a long list.
+     */
+    void showNews(List<News> news) {
+        mFeed.cancel();
+        mPages.cancel();
+        mPageLoading = false;
+        mHasNextPage = false;
+        mRefreshing = false;
+        mLocalQuery = null;
+        mLocalResults = null;
+        mShowLocalResults = false;
+        mNews.clear();
+        mNews.addAll(mFeedPages.reset(news));
+        publish();
+    }
+
+    private void onFeedLoaded(List<News> news, boolean done) {
+        mRefreshing = !done;
+        if (done) {
+            mLoadedOnline = mLoadOnline;
+            mLoadedAtMillis = SystemClock.elapsedRealtime();
+        }
+
+        // Results of the network come first, then the stored news it did not find
+        int fetchedCount = news != null ? news.size() : 0;
+        String search = mSearch == null ? "" : mSearch;
+        if (mLocalResults != null && mLocalQuery.equals(search)) {
+            news = mergeLocalResults(news);
+            mShowLocalResults = false;
+            if (done) {
+                mLocalQuery = null;
+                mLocalResults = null;
+            }
+        } else if (!mMyFeed && news != null && mFeedKey.equals(mShownKey)) {
+            // A refresh of the feed in the list that only found newer news adds them on top of
+            // the pages kept, so the rows the user is looking at stay where they are
+            int newer = indexOfFirstShown(news);
+            if (newer >= 0) {
+                mNews.addAll(0, mFeedPages.addNewest(news.subList(0, newer)));
+                // As many of the oldest news kept move on to the next page
+                mNews.subList(mNews.size() - mFeedPages.trimNewest(), mNews.size()).clear();
+                publish();
+                return;
+            }
+        }
+
+        // A new first page starts the paging over
+        mPages.cancel();
+        mPageLoading = false;
+        mNews.clear();
+        mShownKey = mFeedKey;
+        if (news != null && !news.isEmpty()) {
+            mNews.addAll(mFeedPages.reset(news, mPageSize));
+            // My feed is made of the first page of each of its topics
+            mHasNextPage = !mMyFeed && fetchedCount >= mPageSize;
+        } else {
+            mFeedPages.reset(new ArrayList<News>());
+            mHasNextPage = false;
+        }
+        publish();
+    }
+
+    /**
+     * Add a fetched page to the list without rebuilding it, dropping the page at the other
+     * end if the list holds more pages than allowed.
+     */
+    private void onPageLoaded(List<News> news) {
+        if (!mPageLoading) {
+            return;
+        }
+        mPageLoading = false;
+        if (news == null) {
+            // The page is tried again on the next scroll
+            return;
+        }
+        // The rows the user is looking at stay in place, the list only hears of the rows
+        // inserted and removed around them
+        if (mPendingPageAppend) {
+            mNews.addAll(mFeedPages.addLast(news));
+            mHasNextPage = news.size() >= mPageSize;
+            mNews.subList(0, mFeedPages.trimFirst()).clear();
+        } else {
+            mNews.addAll(0, mFeedPages.addFirst(news));
+            int dropped = mFeedPages.trimLast();
+            mNews.subList(mNews.size() - dropped, mNews.size()).clear();
+            if (dropped > 0) {
+                mHasNextPage = true;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Return the position of the first news of the list in the loaded news, if the news after
+     * it are the ones in the list, or -1 otherwise.
+     */
+    private int indexOfFirstShown(List<News> news) {
+        if (mNews.isEmpty()) {
+            return -1;
+        }
+        String firstUrl = mNews.get(0).getWebUrl();
+        for (int i = 0; i < news.size(); i++) {
+            if (firstUrl != null && firstUrl.equals(news.get(i).getWebUrl())) {
+                // The loaded news may stop earlier, the list may hold later pages
+                int count = Math.min(news.size() - i, mNews.size());
+                for (int j = 1; j < count; j++) {
+                    if (!equalUrls(news.get(i + j), mNews.get(j))) {
+                        return -1;
+                    }
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalUrls(News first, News second) {
+        return first.getWebUrl() == null ? second.getWebUrl() == null : first.getWebUrl().equals(second.getWebUrl());
+    }
+
+    private List<News> mergeLocalResults(List<News> news) {
+        List<News> merged = new ArrayList<>();
+        Set<String> urls = new HashSet<>();
+        if (news != null) {
+            merged.addAll(news);
+            for (News item : news) {
+                urls.add(item.getWebUrl());
+            }
+        }
+        for (News item : mLocalResults) {
+            if (urls.add(item.getWebUrl())) {
+                merged.add(item);
+            }
+        }
+        return merged;
+    }
+
+    private void publish() {
+        List<News> news = mShowLocalResults ? mLocalResults : mNews;
+        mState.setValue(new FeedState(new ArrayList<>(news), mTitle, mRefreshing));
+    }
+
+    @Override
+    protected void onCleared() {
+        // Nobody is left to show the news, stop loading them
+        mFeed.cancel();
+        mPages.cancel();
+    }
+}
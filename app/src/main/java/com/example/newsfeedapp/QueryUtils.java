@@ -1,119 +1,157 @@
 package com.example.newsfeedapp;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.text.TextUtils;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.stream.MalformedJsonException;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class QueryUtils {
 
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
+    /**
+     * Downloads of the thumbnails, so articles sharing an image and the sync and the feed
+     * asking for it at the same time download it once
+     */
+    private static final SingleFlight<byte[]> sImageFlights = new SingleFlight<>(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            // A thumbnail is downloaded on the thread of the first caller, which stays busy
+            // with it as long as another caller waits for it
+            command.run();
+        }
+    }, 0);
+
     public QueryUtils() {
     }
 
     /**
      * Query the USGS dataset and return a list of {@link News} objects.
+     *
+     * @param requestUrl string of the request URL
+     * @param request    handle other threads can use to abort the request
+     * @param cache      cache of earlier responses to serve or revalidate
+     */
+    static List<News> fetchNewsData(String requestUrl, RequestHandle request, HttpCache cache) {
+        // Return the list of {@link News}
+        return requestNews(requestUrl, request, cache).getNews();
+    }
+
+    /**
+     * Make a single request for the news at the URL, and tell how it went so the
+     * {@link RequestExecutor} can decide whether to try again.
+     *
+     * @see #fetchNewsData(String, RequestHandle, HttpCache)
      */
-    static List<News> fetchNewsData(String requestUrl) {
+    static Response requestNews(String requestUrl, RequestHandle request, HttpCache cache) {
 
         // Create URL object
         URL url = createUrl(requestUrl);
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        // Perform HTTP request to the URL and parse the JSON response as it arrives
+        Response response = new Response();
         try {
-            jsonResponse = makeHttpRequest(url);
+            makeHttpRequest(url, request, cache, response);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
-
-        // Extract relevant fields from the JSON response and create a list of {@link Book}s
-        // Return the list of {@link Book}s
-        return extractFeatureFromJson(jsonResponse);
+        return response;
     }
 
     /**
-     * Return a list of {@link News} objects that has been built up from
-     * parsing the given JSON response.
+     * Return the news of the cached response for the URL however old it is, or null if there
+     * is none, for when the API can't be reached.
      */
-    private static List<News> extractFeatureFromJson(String newsJSON) {
-
-        if (TextUtils.isEmpty(newsJSON)) {
+    static List<News> readStaleNewsData(String requestUrl, HttpCache cache) {
+        HttpCache.Entry cached = cache.get(requestUrl);
+        if (cached == null) {
             return null;
         }
-
-        List<News> newsList = new ArrayList<>();
-
         try {
-            JSONObject baseJsonResponse = new JSONObject(newsJSON);
-            JSONObject responseJsonObject = baseJsonResponse.getJSONObject("response");
-            JSONArray resultsJsonArray = responseJsonObject.getJSONArray("results");
-            for (int i = 0; i < resultsJsonArray.length(); i++) {
-                JSONObject currentNews = resultsJsonArray.getJSONObject(i);
-                JSONObject fieldsJsonObject = currentNews.getJSONObject("fields");
-
-                // Section name
-                String sectionName = currentNews.getString("sectionName");
-
-                // Web publication date
-                String webPublicationDate = currentNews.getString("webPublicationDate");
-
-                // Web title
-                String webTitle = currentNews.getString("webTitle");
-
-                // Web url
-                String webUrl = currentNews.getString("webUrl");
-
-                // Trail text
-                String trailText = fieldsJsonObject.getString("trailText");
-
-                // Byline
-                String byline;
-                if (!fieldsJsonObject.isNull("byline")) {
-                    byline = fieldsJsonObject.getString("byline");
-                } else {
-                    byline = "Unknown author";
-                }
+            return readCachedResponse(cached);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
+    /**
+     * Outcome of a request for the news.
+     */
+    static class Response {
+        private List<News> mNews;
+        private int mResponseCode;
+        private String mRetryAfter;
+        private IOException mError;
+
+        /**
+         * Return the news received, or null if the request failed.
+         */
+        List<News> getNews() {
+            return mNews;
+        }
 
-                // Thumbnail
-                String thumbnail;
-                Bitmap thumbnailBitmap;
-                if (!fieldsJsonObject.isNull("thumbnail")) {
-                    thumbnail = fieldsJsonObject.getString("thumbnail");
-                    thumbnailBitmap = downloadBitmap(thumbnail);
-                } else {
-                    thumbnailBitmap = null;
-                }
+        /**
+         * Return the HTTP status of the response, or 0 if none was received.
+         */
+        int getResponseCode() {
+            return mResponseCode;
+        }
 
-                News news = new News(thumbnailBitmap, webTitle, trailText, byline, sectionName, webPublicationDate, webUrl);
-                newsList.add(news);
-            }
+        /**
+         * Return the Retry-After header of the response, or null if it has none.
+         */
+        String getRetryAfter() {
+            return mRetryAfter;
+        }
 
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, "Problem parsing the books JSON results", e);
+        /**
+         * Return the error the request failed with before a response was received, if any.
+         */
+        IOException getError() {
+            return mError;
         }
+    }
 
-        // Return the list of books
+    /**
+     * Return a list of {@link News} objects that has been built up from
+     * parsing the given JSON response stream.
+     */
+    private static List<News> extractFeatureFromJson(InputStream inputStream) throws IOException {
+        List<News> newsList = new ArrayList<>();
+        extractFeatureFromJson(inputStream, newsList);
+        // Return the list of news parsed so far
         return newsList;
     }
 
+    /**
+     * Add the {@link News} objects parsed from the given JSON response stream to the list.
+     *
+     * @return whether the whole response was parsed, false if it is not valid JSON of a
+     * search response, and the list holds the news read before the problem
+     */
+    private static boolean extractFeatureFromJson(InputStream inputStream, List<News> newsList) throws IOException {
+        long start = System.nanoTime();
+        try {
+            NewsFeedReader.read(inputStream, newsList);
+            return true;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            Log.e(LOG_TAG, "Problem parsing the news JSON results", e);
+            return false;
+        } finally {
+            Metrics.PARSE_MILLIS.record((System.nanoTime() - start) / 1000000);
+        }
+    }
+
     /**
      * Returns new URL object from the given string URL.
      */
@@ -128,96 +166,240 @@ public class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and fill in the response with the list of
+     * {@link News} in it. A cached response within its max-age is used without a request,
+     * an older one is revalidated with a conditional request.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static void makeHttpRequest(URL url, RequestHandle request, HttpCache cache, Response response) throws IOException {
+        List<News> newsList = null;
 
         // If the URL is null, then return early.
         if (url == null) {
-            return jsonResponse;
+            return;
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        HttpCache.Entry cached = cache.get(url.toString());
+        if (cached != null && cached.isFresh()) {
+            cache.recordHit();
+            response.mResponseCode = HttpURLConnection.HTTP_OK;
+            response.mNews = readCachedResponse(cached);
+            return;
+        }
+
+        HttpClient.Call call = null;
+        HttpCache.Writer cacheWriter = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            call = HttpClient.newCall(url, request, true);
+            if (cached != null) {
+                cached.addValidators(call.getConnection());
+            }
+            int responseCode = call.execute();
+            response.mResponseCode = responseCode;
 
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // then parse the input stream straight into the list of news,
+            // copying it into the cache on the way.
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                cache.update(cached, call.getConnection());
+                newsList = readCachedResponse(cached);
+            } else if (responseCode == 200) {
+                InputStream inputStream = call.getBody();
+                cacheWriter = cache.edit(url.toString(), call.getConnection(), inputStream);
+                if (cacheWriter != null) {
+                    inputStream = cacheWriter;
+                }
+                newsList = new ArrayList<>();
+                // A body cut short or garbled is not cached, the writer is aborted below
+                if (extractFeatureFromJson(inputStream, newsList) && cacheWriter != null) {
+                    cacheWriter.commit();
+                }
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                response.mRetryAfter = call.getConnection().getHeaderField("Retry-After");
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the book JSON results.", e);
+            response.mError = e;
+            if (request.isCancelled()) {
+                // A newer request superseded this one, its result would be thrown away anyway
+                Log.d(LOG_TAG, "Request cancelled: " + url);
+            } else {
+                Log.e(LOG_TAG, "Problem retrieving the news JSON results.", e);
+            }
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            if (cacheWriter != null) {
+                cacheWriter.abort();
             }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
+            if (call != null) {
+                // Closing the response could throw an IOException, which is why
                 // the makeHttpRequest(URL url) method signature specifies than an IOException
                 // could be thrown.
-                inputStream.close();
+                call.close();
+                Log.d(LOG_TAG, call.toString());
+                Metrics.API_REQUEST_MILLIS.record(call.getTotalMillis());
+                Metrics.API_BYTES.record(call.getBytes());
             }
         }
-        return jsonResponse;
+        response.mNews = newsList;
     }
 
     /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * Return the list of {@link News} in a cached response.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
+    private static List<News> readCachedResponse(HttpCache.Entry cached) throws IOException {
+        InputStream inputStream = cached.openBody();
+        try {
+            return extractFeatureFromJson(inputStream);
+        } finally {
+            inputStream.close();
         }
-        return output.toString();
     }
 
     /**
-     * Load the low res thumbnail image from the URL. If available in 1000px format,
-     * use that instead. Return a {@link Bitmap}
+     * Load the thumbnail image from the URL at the given rendition, decoded at the width of the
+     * view it is shown in. The rendition is swapped into the URL (e.g. /500.jpg becomes
+     * /1000.jpg), reverting to the original URL if that doesn't exist.
      * Credit to Mohammad Ali Fouani via https://stackoverflow.com/q/51587354/9302422
+     * <p>
+     * The rendition and any sharper one are looked up in the disk tier of the
+     * {@link ThumbnailCache} before any network access, and every downloaded image is stored
+     * there under the url it was actually fetched from.
      *
      * @param originalUrl string of the original URL link to the thumbnail image
+     * @param rendition   width of the rendition to fetch, see {@link ImageQuality}
+     * @param reqWidth    width of the view the thumbnail is shown in, or 0 if unknown
+     * @param cache       cache holding the encoded images already downloaded
+     * @param request     handle to give up on the image, the download is aborted unless another
+     *                    caller waits for it
      * @return Bitmap of the image
      */
-    private static Bitmap downloadBitmap(String originalUrl) {
-        Bitmap bitmap = null;
-        // If thumbnail exists, replace the end of the originalUrl into a newUrl string
-        // (e.g. /500.jpg or similar) with /1000.jpg
+    static Bitmap downloadBitmap(String originalUrl, int rendition, int reqWidth, ThumbnailCache cache,
+                                 RequestHandle request) {
+        byte[] image = fetchImage(originalUrl, rendition, cache, request);
+        if (image == null) {
+            return null;
+        }
+        return BitmapDecoder.decode(image, reqWidth);
+    }
+
+    /**
+     * Return the encoded thumbnail image at the given rendition from the disk cache, downloading
+     * it into the cache if it is not there yet, or null if it can't be downloaded.
+     *
+     * @see #downloadBitmap(String, int, int, ThumbnailCache, RequestHandle)
+     */
+    static byte[] fetchImage(String originalUrl, int rendition, ThumbnailCache cache) {
+        return fetchImage(originalUrl, rendition, cache, new RequestHandle());
+    }
+
+    static byte[] fetchImage(String originalUrl, int rendition, ThumbnailCache cache, RequestHandle request) {
+        byte[] image = null;
         if (!"".equals(originalUrl)) {
-            String newUrl = originalUrl.replace
-                    (originalUrl.substring(originalUrl.lastIndexOf("/")), "/1000.jpg");
-            try {
-                // see if the higher-res image exists
-                InputStream inputStream = new URL(newUrl).openStream();
-                bitmap = BitmapFactory.decodeStream(inputStream);
-            } catch (Exception e) {
+            // A URL that names no rendition is the only one there is
+            boolean hasRenditions = renditionWidth(originalUrl) != Integer.MAX_VALUE;
+            String url = hasRenditions ? renditionUrl(originalUrl, rendition) : originalUrl;
+
+            // The rendition, or any sharper one already on disk
+            if (hasRenditions) {
+                for (int i = ImageQuality.RENDITIONS.length - 1; i >= 0 && image == null; i--) {
+                    if (ImageQuality.RENDITIONS[i] >= rendition) {
+                        image = cache.peekImage(renditionUrl(originalUrl, ImageQuality.RENDITIONS[i]));
+                    }
+                }
+            } else {
+                image = cache.peekImage(url);
+            }
+            boolean onDisk = image != null;
+            if (image == null) {
+                image = downloadImage(url, cache, request);
+            }
+            if (image == null && !url.equals(originalUrl) && !request.isCancelled()) {
+                // if the rendition is not found, use the original image url
+                image = cache.peekImage(originalUrl);
+                onDisk = image != null;
+                if (image == null) {
+                    image = downloadImage(originalUrl, cache, request);
+                }
+            }
+            // One lookup of the thumbnail, whichever of its urls were tried
+            cache.recordDiskLookup(onDisk);
+        }
+        return image;
+    }
+
+    /**
+     * Return the URL of the given rendition of the Guardian image, e.g. .../1000.jpg for
+     * .../500.jpg and 1000.
+     */
+    static String renditionUrl(String imageUrl, int width) {
+        return imageUrl.substring(0, imageUrl.lastIndexOf("/") + 1) + width + ".jpg";
+    }
+
+    /**
+     * Return the width of the Guardian image rendition the URL points to (e.g. 500 for
+     * .../500.jpg), or {@link Integer#MAX_VALUE} if the URL doesn't name one.
+     */
+    static int renditionWidth(String imageUrl) {
+        String fileName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
+        int dot = fileName.indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? fileName : fileName.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Return the encoded image at the given URL, downloaded into the disk cache, or null if it
+     * can't be downloaded. A download of the same URL in flight already is waited for instead.
+     */
+    private static byte[] downloadImage(final String imageUrl, final ThumbnailCache cache, RequestHandle request) {
+        return sImageFlights.execute(imageUrl, request, new SingleFlight.Call<byte[]>() {
+            @Override
+            public byte[] call(RequestHandle download) {
                 try {
-                    // if no higher-res image is found, revert to original image url
-                    InputStream inputStream = new URL(originalUrl).openStream();
-                    bitmap = BitmapFactory.decodeStream(inputStream);
-                } catch (Exception ignored) {
+                    byte[] image = downloadImage(imageUrl, download);
+                    cache.putImage(imageUrl, image);
+                    return image;
+                } catch (IOException e) {
+                    return null;
                 }
             }
+        });
+    }
+
+    /**
+     * Return the downloads of the thumbnails shared by callers asking for the same image.
+     */
+    static SingleFlight<byte[]> getImageFlights() {
+        return sImageFlights;
+    }
+
+    /**
+     * Read the encoded image at the given URL into a byte array.
+     */
+    private static byte[] downloadImage(String imageUrl, RequestHandle request) throws IOException {
+        HttpClient.Call call = HttpClient.newCall(new URL(imageUrl), request, false);
+        // Read straight into memory, so the body only takes as long as the network
+        call.setMeasuresBandwidth(true);
+        try {
+            int responseCode = call.execute();
+            if (responseCode != 200) {
+                throw new IOException("Error response code: " + responseCode);
+            }
+            InputStream inputStream = call.getBody();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            call.close();
+            Log.d(LOG_TAG, call.toString());
+            Metrics.IMAGE_REQUEST_MILLIS.record(call.getTotalMillis());
+            Metrics.IMAGE_BYTES.record(call.getBytes());
         }
-        return bitmap;
     }
 
-}
\ No newline at end of file
+}
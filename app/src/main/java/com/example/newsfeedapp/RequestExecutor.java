@@ -0,0 +1,453 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the requests for the news of the Guardian API through {@link QueryUtils}, riding out
+ * the failures of a flaky network or API:
+ * <ul>
+ * <li>failed requests are retried a few times, after a random delay growing with each attempt
+ * so clients do not retry in lock step, or after the time the API asked for with Retry-After;</li>
+ * <li>a {@link CircuitBreaker} refuses requests for a while once they keep failing, so the
+ * feed falls back to the stored news at once;</li>
+ * <li>a request slower than nearly all recent ones is hedged with a second identical request,
+ * and the first response wins.</li>
+ * </ul>
+ * Requests for the same URL made at the same time, e.g. by the feed and the background sync,
+ * share one {@link SingleFlight} of requests.
+ */
+public class RequestExecutor {
+
+    private static final String LOG_TAG = RequestExecutor.class.getSimpleName();
+
+    /**
+     * Latencies of the last successful requests the tail latency is worked out from
+     */
+    private static final int LATENCY_WINDOW = 128;
+
+    /**
+     * Requests measured before the tail latency decides when to hedge
+     */
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    /**
+     * Time a request nobody waits for any more is left running, in case the feed asks again
+     */
+    private static final long ABANDONED_REQUEST_GRACE_MILLIS = 1000;
+
+    /**
+     * Requests for different URLs made at the same time, each with its retries, and requests
+     * waiting for their turn at most, more are failed
+     */
+    private static final int MAX_FLIGHTS = 4;
+    private static final int FLIGHT_QUEUE_CAPACITY = 16;
+
+    /**
+     * HTTP calls in progress at the same time, a hedged request taking two, and calls waiting
+     * for their turn at most, more are failed or not hedged
+     */
+    private static final int MAX_CALLS = 8;
+    private static final int CALL_QUEUE_CAPACITY = 8;
+
+    private static RequestExecutor sInstance;
+
+    private final CircuitBreaker mBreaker;
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final long mHedgeDelayMillis;
+    private final Random mRandom;
+    // Flights wait for their calls, so they run on threads of their own
+    private final ThreadPoolExecutor mFlightExecutor = newPool(MAX_FLIGHTS, FLIGHT_QUEUE_CAPACITY, "api-request-");
+    private final ThreadPoolExecutor mCallExecutor = newPool(MAX_CALLS, CALL_QUEUE_CAPACITY, "api-call-");
+    private final SingleFlight<List<News>> mFlights = new SingleFlight<>(mFlightExecutor, ABANDONED_REQUEST_GRACE_MILLIS);
+
+    private final long[] mLatencies = new long[LATENCY_WINDOW];
+    private int mLatencyCount;
+    private int mRequestCount;
+    private int mAttemptCount;
+    private int mRetryCount;
+    private int mHedgeCount;
+    private int mHedgeWinCount;
+    private int mRefusedCount;
+    private int mFailureCount;
+    private int mRejectedCount;
+
+    /**
+     * Constructs a new {@link RequestExecutor}
+     *
+     * @param breaker          Breaker of the API the requests go to
+     * @param maxAttempts      Attempts made at most for a request
+     * @param baseDelayMillis  Delay before the first retry is drawn from up to this
+     * @param maxDelayMillis   Longest delay before a retry, a longer Retry-After is not waited out
+     * @param hedgeDelayMillis Time a request is left alone at least before it is hedged
+     * @param random           Source of the random delays
+     */
+    RequestExecutor(CircuitBreaker breaker, int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                    long hedgeDelayMillis, Random random) {
+        this.mBreaker = breaker;
+        this.mMaxAttempts = maxAttempts;
+        this.mBaseDelayMillis = baseDelayMillis;
+        this.mMaxDelayMillis = maxDelayMillis;
+        this.mHedgeDelayMillis = hedgeDelayMillis;
+        this.mRandom = random;
+    }
+
+    private static ThreadPoolExecutor newPool(int threads, int queueCapacity, final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static synchronized RequestExecutor getInstance(Context context) {
+        if (sInstance == null) {
+            Resources resources = context.getResources();
+            sInstance = new RequestExecutor(
+                    new CircuitBreaker(resources.getInteger(R.integer.circuit_failure_threshold),
+                            resources.getInteger(R.integer.circuit_open_millis)),
+                    resources.getInteger(R.integer.retry_max_attempts),
+                    resources.getInteger(R.integer.retry_base_delay_millis),
+                    resources.getInteger(R.integer.retry_max_delay_millis),
+                    resources.getInteger(R.integer.hedge_delay_millis),
+                    new Random());
+        }
+        return sInstance;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return mBreaker;
+    }
+
+    /**
+     * Return the news at the URL, or null if they could not be fetched, the request was
+     * cancelled or the API is left alone for now. A request for the same URL in flight
+     * already is waited for instead of being made again.
+     *
+     * @param requestUrl string of the request URL
+     * @param request    handle other threads can use to abort the request and its retries
+     * @param cache      cache of earlier responses to serve or revalidate
+     */
+    public List<News> fetchNewsData(final String requestUrl, RequestHandle request, final HttpCache cache) {
+        return mFlights.execute(requestUrl, request, new SingleFlight.Call<List<News>>() {
+            @Override
+            public List<News> call(RequestHandle request) {
+                return fetch(requestUrl, request, cache);
+            }
+        });
+    }
+
+    /**
+     * Make the request, retrying it as long as it may still succeed.
+     *
+     * @see #fetchNewsData(String, RequestHandle, HttpCache)
+     */
+    private List<News> fetch(String requestUrl, RequestHandle request, HttpCache cache) {
+        synchronized (this) {
+            mRequestCount++;
+        }
+        if (!mBreaker.allowRequest(System.currentTimeMillis())) {
+            synchronized (this) {
+                mRefusedCount++;
+            }
+            Log.d(LOG_TAG, "Request refused, the API keeps failing: " + requestUrl);
+            return null;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            QueryUtils.Response response = attempt(requestUrl, request, cache);
+            if (response == null) {
+                // Too many calls already, nothing was asked of the API
+                mBreaker.recordCancelled();
+                return null;
+            }
+            if (response.getNews() != null) {
+                mBreaker.recordSuccess();
+                return response.getNews();
+            }
+            if (request.isCancelled()) {
+                mBreaker.recordCancelled();
+                return null;
+            }
+            if (!isRetryable(response)) {
+                // The API answered, it is the request it did not like
+                mBreaker.recordSuccess();
+                return null;
+            }
+
+            long retryAfter = retryAfterMillis(response.getRetryAfter(), System.currentTimeMillis());
+            if (retryAfter > mMaxDelayMillis) {
+                // Leave the API alone for as long as it asked
+                synchronized (this) {
+                    mFailureCount++;
+                }
+                mBreaker.open(System.currentTimeMillis(), retryAfter);
+                return null;
+            }
+            if (attempt >= mMaxAttempts) {
+                break;
+            }
+            synchronized (this) {
+                mRetryCount++;
+            }
+            long delay = retryAfter >= 0 ? retryAfter : backoffMillis(attempt);
+            Log.d(LOG_TAG, "Retrying in " + delay + " ms after response " + response.getResponseCode() + ": " + requestUrl);
+            if (!request.sleep(delay)) {
+                mBreaker.recordCancelled();
+                return null;
+            }
+        }
+
+        synchronized (this) {
+            mFailureCount++;
+        }
+        mBreaker.recordFailure(System.currentTimeMillis());
+        return null;
+    }
+
+    /**
+     * Make one attempt at the request. If it takes longer than nearly all recent requests, an
+     * identical request is sent alongside it and whichever succeeds first is used.
+     *
+     * @return the response, or null if there were too many calls to make this one
+     */
+    private QueryUtils.Response attempt(final String requestUrl, RequestHandle request, final HttpCache cache) {
+        synchronized (this) {
+            mAttemptCount++;
+        }
+        ExecutorCompletionService<QueryUtils.Response> completion = new ExecutorCompletionService<>(mCallExecutor);
+        Map<Future<QueryUtils.Response>, RequestHandle> running = new HashMap<>();
+        RequestHandle first = request.newChild();
+        try {
+            running.put(completion.submit(call(requestUrl, first, cache)), first);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                mRejectedCount++;
+            }
+            Log.w(LOG_TAG, "Request failed, too many calls in progress: " + requestUrl);
+            return null;
+        }
+        long start = System.nanoTime();
+
+        QueryUtils.Response response = new QueryUtils.Response();
+        boolean hedged = false;
+        try {
+            while (!running.isEmpty()) {
+                Future<QueryUtils.Response> done = hedged
+                        ? completion.take()
+                        : completion.poll(getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    hedged = true;
+                    RequestHandle hedge = request.newChild();
+                    try {
+                        running.put(completion.submit(call(requestUrl, hedge, cache)), hedge);
+                        synchronized (this) {
+                            mHedgeCount++;
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // Too many calls already, the first one is waited for alone
+                        synchronized (this) {
+                            mRejectedCount++;
+                        }
+                    }
+                    continue;
+                }
+                RequestHandle handle = running.remove(done);
+                response = getResponse(done);
+                if (response.getNews() != null) {
+                    synchronized (this) {
+                        if (handle != first) {
+                            mHedgeWinCount++;
+                        }
+                        addLatency((System.nanoTime() - start) / 1000000);
+                    }
+                    break;
+                }
+                if (!hedged) {
+                    // Failed fast, whether to try again is up to the caller
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The slower of two hedged requests is not needed any more
+            for (RequestHandle handle : running.values()) {
+                handle.cancel();
+            }
+        }
+        return response;
+    }
+
+    private static Callable<QueryUtils.Response> call(final String requestUrl, final RequestHandle request, final HttpCache cache) {
+        return new Callable<QueryUtils.Response>() {
+            @Override
+            public QueryUtils.Response call() {
+                return QueryUtils.requestNews(requestUrl, request, cache);
+            }
+        };
+    }
+
+    private static QueryUtils.Response getResponse(Future<QueryUtils.Response> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem making the HTTP request.", e.getCause());
+            return new QueryUtils.Response();
+        }
+    }
+
+    /**
+     * Return whether a failed request may succeed when made again: it failed on the way, or
+     * the API is overloaded or briefly unavailable.
+     */
+    static boolean isRetryable(QueryUtils.Response response) {
+        switch (response.getResponseCode()) {
+            case 0:
+                return response.getError() != null;
+            case HttpURLConnection.HTTP_CLIENT_TIMEOUT:
+            case 429:
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Return the delay before the given retry, drawn at random up to a ceiling that doubles
+     * with each attempt ("full jitter"), so clients that failed together retry apart.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt - 1, 20));
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * ceiling);
+        }
+    }
+
+    /**
+     * Return how long the API asked to wait with the Retry-After header, given either in
+     * seconds or as an HTTP date, or -1 if it did not say.
+     */
+    static long retryAfterMillis(String retryAfter, long now) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(retryAfter.trim()).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Return how long a request is left alone before it is hedged: as long as 95% of recent
+     * requests took, but never less than the configured delay.
+     */
+    synchronized long getHedgeDelayMillis() {
+        if (mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return mHedgeDelayMillis;
+        }
+        return Math.max(mHedgeDelayMillis, getLatencyPercentile(95));
+    }
+
+    private void addLatency(long millis) {
+        mLatencies[mLatencyCount % LATENCY_WINDOW] = millis;
+        mLatencyCount++;
+    }
+
+    /**
+     * Return the latency in milliseconds that the given percentage of recent successful
+     * requests stayed within.
+     */
+    public synchronized long getLatencyPercentile(double percentile) {
+        int count = Math.min(mLatencyCount, LATENCY_WINDOW);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mLatencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public synchronized int getAttemptCount() {
+        return mAttemptCount;
+    }
+
+    public synchronized int getRetryCount() {
+        return mRetryCount;
+    }
+
+    public synchronized int getHedgeCount() {
+        return mHedgeCount;
+    }
+
+    public synchronized int getHedgeWinCount() {
+        return mHedgeWinCount;
+    }
+
+    public synchronized int getRefusedCount() {
+        return mRefusedCount;
+    }
+
+    public synchronized int getFailureCount() {
+        return mFailureCount;
+    }
+
+    /**
+     * Return the requests shared by callers asking for the same URL at the same time.
+     */
+    public SingleFlight<List<News>> getFlights() {
+        return mFlights;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RequestExecutor{requests=" + mRequestCount + ", attempts=" + mAttemptCount + ", retries=" + mRetryCount
+                + ", hedged=" + mHedgeCount + ", hedgeWins=" + mHedgeWinCount + ", refused=" + mRefusedCount
+                + ", rejected=" + mRejectedCount + ", failed=" + mFailureCount + ", p50=" + getLatencyPercentile(50)
+                + "ms, p95=" + getLatencyPercentile(95)
+                + "ms, p99=" + getLatencyPercentile(99) + "ms, " + mBreaker + ", " + mFlights + "}";
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.newsfeedapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets another thread abort an HTTP request made by {@link QueryUtils}. Cancelling disconnects
+ * the request's {@link HttpURLConnection}, which makes a blocked read fail right away instead
+ * of downloading a response nobody is waiting for.
+ */
+public class RequestHandle {
+
+    private HttpURLConnection mConnection;
+    private boolean mCancelled;
+    private final List<RequestHandle> mChildren = new ArrayList<>();
+
+    /**
+     * Tie the connection to this handle, so cancelling it aborts the connection.
+     *
+     * @throws InterruptedIOException if the request has already been cancelled
+     */
+    synchronized void attach(HttpURLConnection connection) throws IOException {
+        if (mCancelled) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+        mConnection = connection;
+    }
+
+    /**
+     * Return a handle for one of several requests made on behalf of this one, e.g. a retry or
+     * a hedged request. It can be cancelled on its own, and is cancelled along with this one.
+     */
+    synchronized RequestHandle newChild() {
+        return adopt(new RequestHandle());
+    }
+
+    /**
+     * Cancel the handle along with this one from now on, or right away if this one is
+     * cancelled already.
+     */
+    synchronized <T extends RequestHandle> T adopt(T child) {
+        if (mCancelled) {
+            child.cancel();
+        } else {
+            mChildren.add(child);
+        }
+        return child;
+    }
+
+    /**
+     * Abort the request, or make it fail as soon as it starts.
+     */
+    public synchronized void cancel() {
+        mCancelled = true;
+        if (mConnection != null) {
+            mConnection.disconnect();
+        }
+        for (RequestHandle child : mChildren) {
+            child.cancel();
+        }
+        mChildren.clear();
+        // Wake up a request waiting to be retried
+        notifyAll();
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Wait before the request is retried, returning early if it is cancelled meanwhile.
+     *
+     * @return whether the request was not cancelled
+     */
+    synchronized boolean sleep(long millis) {
+        long end = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (!mCancelled && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = end - System.currentTimeMillis();
+        }
+        return !mCancelled;
+    }
+}
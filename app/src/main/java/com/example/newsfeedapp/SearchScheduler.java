@@ -0,0 +1,128 @@
+package com.example.newsfeedapp;
+
+import android.os.Handler;
+
+/**
+ * Turns the stream of text changes from the search view into search requests. A query is
+ * only issued once the text has been left alone for the debounce window, and a query equal
+ * to the one last issued is dropped.
+ */
+public class SearchScheduler {
+
+    /**
+     * Receives the queries that survive debouncing and de-duplication, on the handler's thread.
+     */
+    public interface Callback {
+        void onSearch(String query);
+    }
+
+    /**
+     * Runs the search waiting out the debounce window once it is over.
+     */
+    interface Timer {
+        void postDelayed(Runnable runnable, long delayMillis);
+
+        void removeCallbacks(Runnable runnable);
+    }
+
+    private final Timer mTimer;
+    private final long mDebounceMillis;
+    private final Callback mCallback;
+
+    private String mPendingQuery;
+    private String mLastQuery = "";
+    private int mIssuedCount;
+    private int mSuppressedCount;
+
+    private final Runnable mIssuePending = new Runnable() {
+        @Override
+        public void run() {
+            String query = mPendingQuery;
+            mPendingQuery = null;
+            issue(query);
+        }
+    };
+
+    /**
+     * Constructs a new {@link SearchScheduler}
+     *
+     * @param handler        Handler of the thread the callback runs on
+     * @param debounceMillis Time the text must stay unchanged before it is searched for
+     * @param callback       Callback issuing the search
+     */
+    public SearchScheduler(final Handler handler, long debounceMillis, Callback callback) {
+        this(new Timer() {
+            @Override
+            public void postDelayed(Runnable runnable, long delayMillis) {
+                handler.postDelayed(runnable, delayMillis);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+        }, debounceMillis, callback);
+    }
+
+    SearchScheduler(Timer timer, long debounceMillis, Callback callback) {
+        this.mTimer = timer;
+        this.mDebounceMillis = debounceMillis;
+        this.mCallback = callback;
+    }
+
+    /**
+     * Schedule a search for the text, replacing the one still waiting out the debounce window.
+     */
+    public void onQueryChanged(String query) {
+        cancelPending();
+        mPendingQuery = query;
+        mTimer.postDelayed(mIssuePending, mDebounceMillis);
+    }
+
+    /**
+     * Search for the query right away, as when the user submits it.
+     */
+    public void submit(String query) {
+        cancelPending();
+        issue(query);
+    }
+
+    /**
+     * Drop the search still waiting out the debounce window, e.g. when the text is already
+     * answered without one.
+     */
+    public void cancel() {
+        cancelPending();
+    }
+
+    public int getIssuedCount() {
+        return mIssuedCount;
+    }
+
+    public int getSuppressedCount() {
+        return mSuppressedCount;
+    }
+
+    private void cancelPending() {
+        if (mPendingQuery != null) {
+            mTimer.removeCallbacks(mIssuePending);
+            mPendingQuery = null;
+            mSuppressedCount++;
+        }
+    }
+
+    private void issue(String query) {
+        if (query.equals(mLastQuery)) {
+            mSuppressedCount++;
+            return;
+        }
+        mLastQuery = query;
+        mIssuedCount++;
+        mCallback.onSearch(query);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchScheduler{issued=" + mIssuedCount + ", suppressed=" + mSuppressedCount + "}";
+    }
+}
@@ -7,9 +7,17 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.ListPreference;
 import android.preference.Preference;
+import android.preference.PreferenceCategory;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
+import android.util.Log;
+import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.prefs.PreferenceChangeEvent;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -23,6 +31,11 @@ public class SettingsActivity extends AppCompatActivity {
 
     public static class NewsPreferenceFragment extends PreferenceFragment implements Preference.OnPreferenceChangeListener {
 
+        private static final String LOG_TAG = NewsPreferenceFragment.class.getSimpleName();
+
+        private PreferenceCategory mMetricsCategory;
+        private final List<Preference> mMetricPreferences = new ArrayList<>();
+
         @Override
         public void onCreate(@Nullable Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
@@ -36,6 +49,51 @@ public class SettingsActivity extends AppCompatActivity {
 
             Preference pageSize = findPreference(getString(R.string.settings_page_size_key));
             bindPreferenceSummaryToValue(pageSize);
+
+            mMetricsCategory = (PreferenceCategory) findPreference(getString(R.string.settings_metrics_key));
+            Preference exportMetrics = findPreference(getString(R.string.settings_export_metrics_key));
+            exportMetrics.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+                @Override
+                public boolean onPreferenceClick(Preference preference) {
+                    exportMetrics();
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            showMetrics();
+        }
+
+        /**
+         * Show a row per metric, with its percentiles or hit rate, under the export button.
+         */
+        private void showMetrics() {
+            for (Preference preference : mMetricPreferences) {
+                mMetricsCategory.removePreference(preference);
+            }
+            mMetricPreferences.clear();
+            for (Map.Entry<String, String> metric : Metrics.snapshot(getActivity()).entrySet()) {
+                Preference preference = new Preference(getActivity());
+                preference.setTitle(metric.getKey());
+                preference.setSummary(metric.getValue());
+                preference.setSelectable(false);
+                mMetricsCategory.addPreference(preference);
+                mMetricPreferences.add(preference);
+            }
+        }
+
+        private void exportMetrics() {
+            showMetrics();
+            try {
+                File file = Metrics.export(getActivity());
+                Toast.makeText(getActivity(), getString(R.string.metrics_exported, file.getPath()), Toast.LENGTH_LONG).show();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem exporting the metrics", e);
+                Toast.makeText(getActivity(), R.string.metrics_not_exported, Toast.LENGTH_SHORT).show();
+            }
         }
 
         @Override
@@ -0,0 +1,248 @@
+package com.example.newsfeedapp;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes one call for each key at a time: callers asking for a key while a call for it is in
+ * flight wait for that call and share its result, instead of making the same request again.
+ * <p>
+ * The calls run on an executor of their own, so each caller can give up waiting right away by
+ * cancelling its own {@link RequestHandle}. The call itself is only aborted once every caller
+ * gave up, and only after a grace period, so a caller that replaces a cancelled one right away
+ * (e.g. a pull to refresh while the feed is loading) joins the call instead of starting over.
+ *
+ * @param <V> type of the result of a call
+ */
+public class SingleFlight<V> {
+
+    /**
+     * Work done once for all the callers of a key.
+     */
+    public interface Call<V> {
+        /**
+         * @param request handle cancelled once every caller gave up
+         * @return the result, or null if there is none
+         */
+        V call(RequestHandle request);
+    }
+
+    private static ScheduledExecutorService sScheduler;
+
+    private final Executor mExecutor;
+    private final long mGraceMillis;
+    private final Map<String, Flight> mFlights = new HashMap<>();
+    private int mCallCount;
+    private int mCoalescedCount;
+    private int mAbortedCount;
+
+    /**
+     * A call in flight and the callers waiting for it.
+     */
+    private class Flight {
+        private final String mKey;
+        private final RequestHandle mRequest = new RequestHandle();
+        private int mCallers;
+        // Tells a scheduled abort from the callers that left since
+        private int mGeneration;
+        private boolean mDone;
+        private V mResult;
+
+        Flight(String key) {
+            this.mKey = key;
+        }
+    }
+
+    /**
+     * A caller's stake in a flight, cancelled along with the caller's request.
+     */
+    private class Caller extends RequestHandle {
+        private final Flight mFlight;
+        private boolean mLeft;
+        private boolean mGaveUp;
+
+        Caller(Flight flight) {
+            this.mFlight = flight;
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            leave(this, true);
+        }
+    }
+
+    /**
+     * Constructs a new {@link SingleFlight}
+     *
+     * @param executor    Executor the calls run on
+     * @param graceMillis Time a call every caller gave up on is left running, in case a new
+     *                    caller joins it
+     */
+    public SingleFlight(Executor executor, long graceMillis) {
+        this.mExecutor = executor;
+        this.mGraceMillis = graceMillis;
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (sScheduler == null) {
+            sScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "single-flight");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sScheduler;
+    }
+
+    /**
+     * Return the result of the call for the key, making the call unless one is in flight
+     * already.
+     *
+     * @param key     identifies what the call returns, e.g. the URL it requests
+     * @param request handle of this caller, cancelling it makes this method return null
+     * @param call    work to do if no call for the key is in flight
+     */
+    public V execute(String key, RequestHandle request, final Call<V> call) {
+        Flight inFlight;
+        boolean leader;
+        synchronized (this) {
+            mCallCount++;
+            inFlight = mFlights.get(key);
+            leader = inFlight == null;
+            if (leader) {
+                inFlight = new Flight(key);
+                mFlights.put(key, inFlight);
+            } else {
+                mCoalescedCount++;
+            }
+            inFlight.mCallers++;
+        }
+        final Flight flight = inFlight;
+        // Outside of the lock, cancelling the request calls back into it
+        Caller caller = request.adopt(new Caller(flight));
+        try {
+            if (leader) {
+                try {
+                    mExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            V result = null;
+                            try {
+                                result = call.call(flight.mRequest);
+                            } finally {
+                                finish(flight, result);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    finish(flight, null);
+                }
+            }
+            return await(caller);
+        } finally {
+            leave(caller, false);
+        }
+    }
+
+    private synchronized void finish(Flight flight, V result) {
+        if (mFlights.get(flight.mKey) == flight) {
+            // Later callers make a call of their own
+            mFlights.remove(flight.mKey);
+        }
+        flight.mDone = true;
+        flight.mResult = result;
+        notifyAll();
+    }
+
+    private synchronized V await(Caller caller) {
+        Flight flight = caller.mFlight;
+        while (!flight.mDone && !caller.mGaveUp) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return caller.mGaveUp ? null : flight.mResult;
+    }
+
+    private synchronized void leave(Caller caller, boolean gaveUp) {
+        if (caller.mLeft) {
+            return;
+        }
+        caller.mLeft = true;
+        caller.mGaveUp = gaveUp;
+        final Flight flight = caller.mFlight;
+        flight.mCallers--;
+        if (flight.mCallers == 0 && !flight.mDone) {
+            final int generation = ++flight.mGeneration;
+            if (mGraceMillis <= 0) {
+                abort(flight);
+            } else {
+                getScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (SingleFlight.this) {
+                            if (flight.mCallers == 0 && !flight.mDone && flight.mGeneration == generation) {
+                                abort(flight);
+                            }
+                        }
+                    }
+                }, mGraceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        // Wake up the caller that gave up
+        notifyAll();
+    }
+
+    private void abort(Flight flight) {
+        if (mFlights.get(flight.mKey) == flight) {
+            mFlights.remove(flight.mKey);
+        }
+        mAbortedCount++;
+        flight.mRequest.cancel();
+    }
+
+    /**
+     * Return the number of calls asked for, made or joined.
+     */
+    public synchronized int getCallCount() {
+        return mCallCount;
+    }
+
+    /**
+     * Return the number of calls that joined a call in flight instead of being made.
+     */
+    public synchronized int getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * Return the number of calls aborted because every caller gave up on them.
+     */
+    public synchronized int getAbortedCount() {
+        return mAbortedCount;
+    }
+
+    public synchronized String getSummary() {
+        return "coalesced=" + mCoalescedCount + " calls=" + mCallCount + " aborted=" + mAbortedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{" + getSummary() + "}";
+    }
+}
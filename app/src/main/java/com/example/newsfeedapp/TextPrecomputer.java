@@ -0,0 +1,201 @@
+package com.example.newsfeedapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.preference.PreferenceManager;
+import android.text.SpannableStringBuilder;
+import android.text.style.ImageSpan;
+import android.text.style.URLSpan;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.text.HtmlCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Background stage that prepares the text of the rows once the news are parsed: the HTML of
+ * the trail text is turned into spans, and the title and the trail text are measured with the
+ * paint of the row, which carries the font scale. Binding a row then sets text that only needs
+ * breaking into lines, instead of measuring every glyph on the main thread while scrolling.
+ * <p>
+ * The prepared text of each article is cached until the paint of the rows changes.
+ */
+public class TextPrecomputer {
+
+    private static TextPrecomputer sInstance;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // Stay out of the way of the main thread
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "text-precompute");
+        }
+    });
+    private final LruCache<News, Text> mCache;
+    private volatile PrecomputedTextCompat.Params mTitleParams;
+    private volatile PrecomputedTextCompat.Params mTrailTextParams;
+    // Tells the preparation of a list from the ones submitted after it
+    private volatile int mGeneration;
+    private long mHits;
+    private long mMisses;
+
+    /**
+     * Text of a row ready to be set.
+     */
+    static class Text {
+        final PrecomputedTextCompat mTitle;
+        final PrecomputedTextCompat mTrailText;
+
+        Text(PrecomputedTextCompat title, PrecomputedTextCompat trailText) {
+            this.mTitle = title;
+            this.mTrailText = trailText;
+        }
+    }
+
+    private TextPrecomputer(Context context) {
+        mCache = new LruCache<>(context.getResources().getInteger(R.integer.precomputed_rows));
+    }
+
+    public static synchronized TextPrecomputer getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TextPrecomputer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return whether the text of the rows is prepared in the background, as set in the settings.
+     */
+    public static boolean isEnabled(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        return sharedPreferences.getBoolean(context.getString(R.string.settings_precompute_text_key),
+                context.getResources().getBoolean(R.bool.settings_precompute_text_default));
+    }
+
+    /**
+     * Take the paint of the text views of a row, which the text is measured with. Text
+     * prepared with another paint, e.g. before the font scale changed, is dropped.
+     *
+     * @return whether the paint changed, and the text has to be prepared again
+     */
+    public boolean setTextViews(TextView title, TextView trailText) {
+        PrecomputedTextCompat.Params titleParams = TextViewCompat.getTextMetricsParams(title);
+        PrecomputedTextCompat.Params trailTextParams = TextViewCompat.getTextMetricsParams(trailText);
+        if (!titleParams.equals(mTitleParams) || !trailTextParams.equals(mTrailTextParams)) {
+            mGeneration++;
+            mTitleParams = titleParams;
+            mTrailTextParams = trailTextParams;
+            mCache.evictAll();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prepare the text of the news not prepared yet, in the order of the list, dropping the
+     * preparation of the list submitted before.
+     */
+    public void prepare(List<News> news) {
+        final PrecomputedTextCompat.Params titleParams = mTitleParams;
+        final PrecomputedTextCompat.Params trailTextParams = mTrailTextParams;
+        if (titleParams == null || news.isEmpty()) {
+            // Nothing to measure with until a row is created
+            return;
+        }
+        final int generation = ++mGeneration;
+        final List<News> pending = new ArrayList<>(news);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (News item : pending) {
+                    if (mGeneration != generation) {
+                        return;
+                    }
+                    if (mCache.get(item) == null) {
+                        mCache.put(item, new Text(
+                                PrecomputedTextCompat.create(nonNull(item.getWebTitle()), titleParams),
+                                PrecomputedTextCompat.create(sanitize(item.getTrailText()), trailTextParams)));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the title and the trail text of an article, prepared if they are, or else prepared
+     * right away on the main thread.
+     */
+    public void bind(News news, TextView title, TextView trailText) {
+        Text text = mCache.get(news);
+        if (text != null) {
+            try {
+                TextViewCompat.setPrecomputedText(title, text.mTitle);
+                TextViewCompat.setPrecomputedText(trailText, text.mTrailText);
+                synchronized (this) {
+                    mHits++;
+                }
+                return;
+            } catch (IllegalArgumentException e) {
+                // The text views no longer draw with the paint the text was measured with
+                mCache.remove(news);
+            }
+        }
+        synchronized (this) {
+            mMisses++;
+        }
+        title.setText(news.getWebTitle());
+        trailText.setText(sanitize(news.getTrailText()));
+    }
+
+    /**
+     * Return the trail text of the API, which holds HTML, as styled text without its links
+     * and images: a tap on a row opens the article, and a row has no room for images.
+     */
+    static CharSequence sanitize(String trailText) {
+        if (trailText == null) {
+            return "";
+        }
+        SpannableStringBuilder text = new SpannableStringBuilder(
+                HtmlCompat.fromHtml(trailText, HtmlCompat.FROM_HTML_MODE_LEGACY));
+        for (Object span : text.getSpans(0, text.length(), URLSpan.class)) {
+            text.removeSpan(span);
+        }
+        for (ImageSpan span : text.getSpans(0, text.length(), ImageSpan.class)) {
+            text.delete(text.getSpanStart(span), text.getSpanEnd(span));
+        }
+        // Paragraphs end in line breaks
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        text.delete(end, text.length());
+        return text;
+    }
+
+    private static CharSequence nonNull(String text) {
+        return text == null ? "" : text;
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.newsfeedapp;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two tier cache for article thumbnails. Decoded bitmaps are kept in a memory LRU bounded
+ * by their size in bytes, and the encoded images are kept on disk keyed by the url they
+ * were fetched from, so a refresh or a reload of the feed does not download them again.
+ */
+public class ThumbnailCache {
+
+    /**
+     * Maximum size of the disk tier, 20MB
+     */
+    private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final DiskCache mDiskCache;
+
+    private final AtomicLong mMemoryHits = new AtomicLong();
+    private final AtomicLong mMemoryMisses = new AtomicLong();
+    private final AtomicLong mMemoryEvictions = new AtomicLong();
+    private final AtomicLong mDiskHits = new AtomicLong();
+    private final AtomicLong mDiskMisses = new AtomicLong();
+
+    /**
+     * Constructs a new {@link ThumbnailCache}
+     *
+     * @param cacheDir Directory of the disk tier
+     */
+    public ThumbnailCache(File cacheDir) {
+        // Use an eighth of the memory available to the app for the memory tier
+        int memoryCacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (evicted) {
+                    mMemoryEvictions.incrementAndGet();
+                }
+            }
+        };
+        mDiskCache = new DiskCache(cacheDir, DISK_CACHE_SIZE);
+    }
+
+    /**
+     * Return the decoded thumbnail for the given url from the memory tier, or null. The
+     * lookup is not counted, a thumbnail may be looked up under several keys: count it once
+     * with {@link #recordMemoryLookup(boolean)}.
+     */
+    public Bitmap peekBitmap(String url) {
+        return mMemoryCache.get(url);
+    }
+
+    /**
+     * Count a lookup of a thumbnail in the memory tier.
+     *
+     * @param hit whether the thumbnail was found under any of its keys
+     */
+    public void recordMemoryLookup(boolean hit) {
+        if (hit) {
+            mMemoryHits.incrementAndGet();
+        } else {
+            mMemoryMisses.incrementAndGet();
+        }
+    }
+
+    public void putBitmap(String url, Bitmap bitmap) {
+        mMemoryCache.put(url, bitmap);
+    }
+
+    /**
+     * Return the encoded image fetched from the given url from the disk tier, or null. Like
+     * {@link #peekBitmap(String)}, the lookup is counted with {@link #recordDiskLookup(boolean)}.
+     */
+    public byte[] peekImage(String resolvedUrl) {
+        return mDiskCache.get(resolvedUrl);
+    }
+
+    /**
+     * Count a lookup of a thumbnail in the disk tier.
+     *
+     * @param hit whether the image was found under any of its urls
+     */
+    public void recordDiskLookup(boolean hit) {
+        if (hit) {
+            mDiskHits.incrementAndGet();
+        } else {
+            mDiskMisses.incrementAndGet();
+        }
+    }
+
+    public void putImage(String resolvedUrl, byte[] image) {
+        mDiskCache.put(resolvedUrl, image);
+    }
+
+    public long getMemoryHits() {
+        return mMemoryHits.get();
+    }
+
+    public long getMemoryMisses() {
+        return mMemoryMisses.get();
+    }
+
+    public long getMemoryEvictions() {
+        return mMemoryEvictions.get();
+    }
+
+    public long getDiskHits() {
+        return mDiskHits.get();
+    }
+
+    public long getDiskMisses() {
+        return mDiskMisses.get();
+    }
+
+    public long getDiskEvictions() {
+        return mDiskCache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "ThumbnailCache{memory hits=" + getMemoryHits()
+                + ", misses=" + getMemoryMisses()
+                + ", evictions=" + getMemoryEvictions()
+                + ", size=" + mMemoryCache.size()
+                + "; disk hits=" + getDiskHits()
+                + ", misses=" + getDiskMisses()
+                + ", evictions=" + getDiskEvictions()
+                + ", size=" + mDiskCache.size() + "}";
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitmapDecoderTest {
+
+    @Test
+    public void calculateInSampleSize_keepsImageAtLeastAsWideAsView() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(1000, 0));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(1000, 1080));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(1000, 501));
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(1000, 500));
+        assertEquals(4, BitmapDecoder.calculateInSampleSize(1000, 200));
+    }
+}
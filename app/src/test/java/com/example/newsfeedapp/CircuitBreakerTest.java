@@ -0,0 +1,50 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        breaker.recordFailure(0);
+        breaker.recordFailure(0);
+        breaker.recordSuccess();
+        breaker.recordFailure(0);
+        breaker.recordFailure(0);
+        assertTrue(breaker.allowRequest(0));
+
+        breaker.recordFailure(0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(999));
+    }
+
+    @Test
+    public void letsOneTrialThroughOnceOpenPeriodIsOver() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.recordFailure(0);
+
+        assertTrue(breaker.allowRequest(1000));
+        assertFalse(breaker.allowRequest(1000));
+
+        // A failed trial opens it for another period
+        breaker.recordFailure(1000);
+        assertFalse(breaker.allowRequest(1999));
+        assertTrue(breaker.allowRequest(2000));
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void cancelledTrialLetsNextRequestTry() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.recordFailure(0);
+        assertTrue(breaker.allowRequest(1000));
+
+        breaker.recordCancelled();
+        assertTrue(breaker.allowRequest(1000));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Refreshes a feed from a local stub of the Guardian search endpoint that honours
+ * {@code from-date}, with articles being published between the refreshes.
+ */
+public class DeltaRefreshTest {
+
+    private static final int PAGE_SIZE = 15;
+    private static final int MAX_NEWS = 40;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private DeltaRefresh mDeltaRefresh;
+    // Number of the newest article published so far
+    private final AtomicInteger mNewest = new AtomicInteger(99);
+    private final AtomicLong mLastBytes = new AtomicLong();
+    private volatile String mLastQuery;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+                mLastQuery = query;
+                int pageSize = Integer.parseInt(query.replaceAll(".*page-size=(\\d+).*", "$1"));
+                int newest = mNewest.get();
+                int count = Math.min(pageSize, newest + 1);
+                if (query.contains(DeltaRefresh.FROM_DATE + "=")) {
+                    long from = PublicationTime.parse(query.replaceAll(".*from-date=([^&]+).*", "$1"));
+                    int published = 0;
+                    while (published < newest + 1 && SearchResponses.feedTime(newest - published) >= from) {
+                        published++;
+                    }
+                    count = Math.min(count, published);
+                }
+                byte[] body = SearchResponses.feed(newest, count, mBaseUrl).getBytes(Charset.forName("UTF-8"));
+                mLastBytes.set(body.length);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        RequestExecutor executor = new RequestExecutor(new CircuitBreaker(3, 1000), 1, 20, 2000, 2000, new Random(42));
+        mDeltaRefresh = new DeltaRefresh(executor, new HttpCache(mFolder.newFolder()), MAX_NEWS);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    private String url() {
+        return mBaseUrl + "/search?page-size=" + PAGE_SIZE + "&order-by=newest";
+    }
+
+    private List<News> refresh(List<News> stored) {
+        return mDeltaRefresh.fetch(url(), true, PAGE_SIZE, stored, new RequestHandle());
+    }
+
+    @Test
+    public void refresh_onlyDownloadsNewArticles() {
+        List<News> news = refresh(new ArrayList<News>());
+        assertEquals(PAGE_SIZE, news.size());
+        assertFalse(mLastQuery.contains(DeltaRefresh.FROM_DATE));
+        long pageBytes = mLastBytes.get();
+
+        mNewest.addAndGet(3);
+        news = refresh(news);
+        assertTrue(mLastQuery.contains(DeltaRefresh.FROM_DATE));
+        long deltaBytes = mLastBytes.get();
+        // The new articles on top of the stored ones, once each
+        assertEquals(PAGE_SIZE + 3, news.size());
+        assertEquals(102, number(news.get(0)));
+        assertEquals(99, number(news.get(3)));
+        assertEquals(news.size(), urls(news).size());
+
+        mNewest.addAndGet(0);
+        news = refresh(news);
+        long idleBytes = mLastBytes.get();
+        assertEquals(PAGE_SIZE + 3, news.size());
+
+        // The newest stored article comes again with the new ones, the date is inclusive
+        assertTrue(deltaBytes < pageBytes * 5 / PAGE_SIZE);
+        assertTrue(idleBytes < pageBytes * 2 / PAGE_SIZE);
+    }
+
+    @Test
+    public void refresh_afterMoreThanAPageStartsOver() {
+        List<News> news = refresh(new ArrayList<News>());
+        mNewest.addAndGet(PAGE_SIZE + 5);
+        news = refresh(news);
+        // The stored news would have followed a gap
+        assertEquals(PAGE_SIZE, news.size());
+        assertEquals(119, number(news.get(0)));
+    }
+
+    @Test
+    public void refresh_dropsOldestPastRetentionLimit() {
+        List<News> news = refresh(new ArrayList<News>());
+        for (int i = 0; i < 10; i++) {
+            mNewest.addAndGet(5);
+            news = refresh(news);
+        }
+        assertEquals(MAX_NEWS, news.size());
+        assertEquals(149, number(news.get(0)));
+        assertEquals(110, number(news.get(MAX_NEWS - 1)));
+    }
+
+    @Test
+    public void refresh_otherOrdersFetchWholePage() {
+        List<News> news = refresh(new ArrayList<News>());
+        mNewest.addAndGet(3);
+        news = mDeltaRefresh.fetch(url(), false, PAGE_SIZE, news, new RequestHandle());
+        assertFalse(mLastQuery.contains(DeltaRefresh.FROM_DATE));
+        assertEquals(PAGE_SIZE, news.size());
+    }
+
+    /**
+     * Return the number of the article in the feed of the stub.
+     */
+    private static int number(News news) {
+        String url = news.getWebUrl();
+        return Integer.parseInt(url.substring(url.lastIndexOf('-') + 1));
+    }
+
+    private static Set<String> urls(List<News> news) {
+        Set<String> urls = new HashSet<>();
+        for (News item : news) {
+            urls.add(item.getWebUrl());
+        }
+        return urls;
+    }
+}
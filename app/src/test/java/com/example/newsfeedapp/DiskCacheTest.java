@@ -0,0 +1,52 @@
+package com.example.newsfeedapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class DiskCacheTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredBytes() throws IOException {
+        DiskCache cache = new DiskCache(mFolder.newFolder(), 1024);
+        cache.put("https://media.guim.co.uk/a/500.jpg", new byte[]{1, 2, 3});
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get("https://media.guim.co.uk/a/500.jpg"));
+        assertNull(cache.get("https://media.guim.co.uk/a/1000.jpg"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedPastSizeCap() throws IOException {
+        File directory = mFolder.newFolder();
+        DiskCache cache = new DiskCache(directory, 250);
+        cache.put("first", new byte[100]);
+        cache.put("second", new byte[100]);
+        // Make "first" the older entry regardless of the file system's timestamp resolution
+        new File(directory, DiskCache.keyFor("first")).setLastModified(1000);
+        new File(directory, DiskCache.keyFor("second")).setLastModified(2000);
+
+        cache.put("third", new byte[100]);
+
+        assertNull(cache.get("first"));
+        assertNotNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    public void size_survivesReopening() throws IOException {
+        File directory = mFolder.newFolder();
+        new DiskCache(directory, 1024).put("first", new byte[100]);
+
+        assertEquals(100, new DiskCache(directory, 1024).size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeedPagesTest {
+
+    private static List<News> page(int first, int count) {
+        List<News> news = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            news.add(new News(null, "Title " + i, "", "", "World news", PublicationTime.parse("2020-01-01T00:00:00Z"),
+                    "https://www.theguardian.com/" + i));
+        }
+        return news;
+    }
+
+    @Test
+    public void nextPage_followsKeptPages() {
+        FeedPages pages = new FeedPages(3);
+        pages.reset(page(0, 10));
+        assertEquals(2, pages.getNextPage());
+        pages.addLast(page(10, 10));
+        assertEquals(3, pages.getNextPage());
+        assertEquals(0, pages.getPreviousPage());
+    }
+
+    @Test
+    public void addLast_skipsNewsAlreadyKept() {
+        FeedPages pages = new FeedPages(3);
+        pages.reset(page(0, 10));
+        // One article published meanwhile pushes the last one of page 1 onto page 2
+        List<News> added = pages.addLast(page(9, 10));
+        assertEquals(9, added.size());
+        assertEquals("Title 10", added.get(0).getWebTitle());
+    }
+
+    @Test
+    public void trim_keepsWindowOfPages() {
+        FeedPages pages = new FeedPages(2);
+        pages.reset(page(0, 10));
+        pages.addLast(page(10, 10));
+        assertEquals(0, pages.trimFirst());
+        pages.addLast(page(20, 10));
+        assertEquals(10, pages.trimFirst());
+        assertEquals(1, pages.getPreviousPage());
+        assertEquals(4, pages.getNextPage());
+
+        // Scrolling back up brings page 1 back and drops page 3
+        List<News> added = pages.addFirst(page(0, 10));
+        assertEquals(10, added.size());
+        assertEquals(10, pages.trimLast());
+        assertEquals(0, pages.getPreviousPage());
+        assertEquals(3, pages.getNextPage());
+    }
+
+    @Test
+    public void reset_splitsStoredNewsIntoPages() {
+        FeedPages pages = new FeedPages(5);
+        // A last page that is not full stays with the one before, page 3 repeats some news
+        assertEquals(28, pages.reset(page(0, 28), 10).size());
+        assertEquals(3, pages.getNextPage());
+        List<News> added = pages.addLast(page(20, 10));
+        assertEquals(2, added.size());
+        assertEquals("Title 28", added.get(0).getWebTitle());
+    }
+
+    @Test
+    public void reset_keepsNewestPagesAllowed() {
+        FeedPages pages = new FeedPages(5);
+        // All the news stored for a feed, more than the pages kept hold
+        List<News> added = pages.reset(page(0, 100), 15);
+        assertEquals(75, added.size());
+        assertEquals("Title 74", added.get(74).getWebTitle());
+        assertEquals(6, pages.getNextPage());
+        assertEquals(0, pages.trimFirst());
+        assertEquals(0, pages.trimLast());
+        assertEquals(15, pages.addLast(page(75, 15)).size());
+        assertEquals(15, pages.trimFirst());
+    }
+
+    @Test
+    public void trimNewest_dropsAsManyFromTheEnd() {
+        FeedPages pages = new FeedPages(5);
+        pages.reset(page(10, 100), 15);
+        assertEquals(3, pages.addNewest(page(7, 4)).size());
+        assertEquals(3, pages.trimNewest());
+        assertEquals(0, pages.trimNewest());
+        // Page 6 of the feed now starts with the news dropped
+        List<News> added = pages.addLast(page(82, 15));
+        assertEquals(15, added.size());
+        assertEquals("Title 82", added.get(0).getWebTitle());
+    }
+
+    @Test
+    public void addNewest_goesOnTopOfFirstPage() {
+        FeedPages pages = new FeedPages(2);
+        pages.reset(page(10, 10));
+        // The newest stored article comes again with the newer ones
+        List<News> added = pages.addNewest(page(7, 4));
+        assertEquals(3, added.size());
+        assertEquals(2, pages.getNextPage());
+
+        // Once page 1 is dropped, they come with it when scrolling back up
+        pages.addLast(page(20, 10));
+        pages.addLast(page(30, 10));
+        assertEquals(13, pages.trimFirst());
+        assertEquals(0, pages.addNewest(page(0, 4)).size());
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the {@link FeedPipeline} with jobs fetching from a local stub of the Guardian search
+ * endpoint, delivering to a single thread that stands in for the main thread.
+ */
+public class FeedPipelineTest {
+
+    private static final long SLOW_RESPONSE_MS = 5000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private HttpCache mCache;
+    private String mBaseUrl;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private ExecutorService mExecutor;
+    private ExecutorService mMainThread;
+    private final LinkedBlockingQueue<Update> mUpdates = new LinkedBlockingQueue<>();
+
+    private static class Update {
+        final List<News> mNews;
+        final boolean mDone;
+        final boolean mRefused;
+
+        Update(List<News> news, boolean done, boolean refused) {
+            this.mNews = news;
+            this.mDone = done;
+            this.mRefused = refused;
+        }
+    }
+
+    /**
+     * Fetches the news at the url, like the {@link NewsLoader} without its store.
+     */
+    private class FetchJob implements FeedPipeline.Job {
+        private final String mUrl;
+        private final RequestHandle mRequest = new RequestHandle();
+
+        FetchJob(String url) {
+            this.mUrl = url;
+        }
+
+        @Override
+        public void run(FeedPipeline.Publisher publisher) {
+            publisher.publish(Collections.<News>emptyList(), false);
+            List<News> news = QueryUtils.fetchNewsData(mUrl, mRequest, mCache);
+            if (!mRequest.isCancelled()) {
+                publisher.publish(news, true);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mRequest.cancel();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mCache = new HttpCache(mFolder.newFolder());
+        mExecutor = Executors.newFixedThreadPool(2);
+        mMainThread = Executors.newSingleThreadExecutor();
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                if (exchange.getRequestURI().getQuery().contains("slow")) {
+                    try {
+                        Thread.sleep(SLOW_RESPONSE_MS);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                // Never served from the cache, every load is a request
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                byte[] body = SearchResponses.search(10, mBaseUrl).getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+        mMainThread.shutdownNow();
+    }
+
+    @Test
+    public void load_streamsUpdatesUntilDone() throws InterruptedException {
+        FeedPipeline pipeline = newPipeline(mExecutor);
+        pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false);
+
+        Update stored = next();
+        assertFalse(stored.mRefused);
+        assertFalse(stored.mDone);
+        assertTrue(stored.mNews.isEmpty());
+        Update fetched = next();
+        assertTrue(fetched.mDone);
+        assertEquals(10, fetched.mNews.size());
+    }
+
+    @Test
+    public void load_sameKeyAfterRotationDoesNotFetchAgain() throws InterruptedException {
+        FeedPipeline pipeline = newPipeline(mExecutor);
+        assertTrue(pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false));
+        next();
+        assertTrue(next().mDone);
+
+        // The recreated activity asks for the feed again, and is shown what was loaded
+        assertFalse(pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false));
+        Thread.sleep(200);
+        assertEquals(1, mRequests.get());
+        assertTrue(mUpdates.isEmpty());
+
+        // Pulling to refresh does fetch the feed again
+        assertTrue(pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), true));
+        next();
+        assertTrue(next().mDone);
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void load_newKeyCancelsLoadInFlight() throws InterruptedException {
+        FeedPipeline pipeline = newPipeline(mExecutor);
+        FetchJob slow = new FetchJob(mBaseUrl + "/search?q=slow");
+        pipeline.load("slow", slow, false);
+        assertFalse(next().mDone);
+
+        long start = System.nanoTime();
+        pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false);
+        next();
+        Update fetched = next();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(fetched.mDone);
+        assertEquals(10, fetched.mNews.size());
+        assertTrue(slow.mRequest.isCancelled());
+        assertTrue(elapsed < SLOW_RESPONSE_MS);
+        // Nothing of the cancelled load arrives afterwards
+        assertNull(mUpdates.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void load_refusedWhenQueueIsFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1));
+        FeedPipeline.Job blocking = new FeedPipeline.Job() {
+            @Override
+            public void run(FeedPipeline.Publisher publisher) throws InterruptedException {
+                release.await();
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+        // One running and one queued fill the executor, they belong to other pipelines
+        newPipeline(bounded).load("running", blocking, false);
+        newPipeline(bounded).load("queued", blocking, false);
+
+        FeedPipeline pipeline = newPipeline(bounded);
+        assertFalse(pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false));
+        // Refused rather than loaded empty, so the news shown stay
+        Update refused = next();
+        assertTrue(refused.mRefused);
+        assertNull(refused.mNews);
+
+        // Nothing was loaded for the key, so asking again tries again
+        release.countDown();
+        while (!bounded.getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+        assertTrue(pipeline.load("topic", new FetchJob(mBaseUrl + "/search?q=topic"), false));
+        next();
+        assertEquals(10, next().mNews.size());
+        bounded.shutdown();
+    }
+
+    private FeedPipeline newPipeline(ExecutorService executor) {
+        return new FeedPipeline(executor, mMainThread, new FeedPipeline.Listener() {
+            @Override
+            public void onNews(List<News> news, boolean done) {
+                mUpdates.add(new Update(news, done, false));
+            }
+
+            @Override
+            public void onRefused() {
+                mUpdates.add(new Update(null, true, true));
+            }
+        });
+    }
+
+    private Update next() throws InterruptedException {
+        Update update = mUpdates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update);
+        return update;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsTest {
+
+    private static final long FRAME_NANOS = 16666667;
+
+    @Test
+    public void framesWithinInterval_areNotJanky() {
+        FrameStats stats = new FrameStats(FRAME_NANOS);
+        for (int i = 0; i < 100; i++) {
+            stats.addFrame(FRAME_NANOS);
+        }
+        assertEquals(100, stats.getFrameCount());
+        assertEquals(0, stats.getJankyFrameCount());
+        assertEquals(16.7, stats.getPercentileMillis(99), 0.1);
+    }
+
+    @Test
+    public void longFrames_countDroppedFrames() {
+        FrameStats stats = new FrameStats(FRAME_NANOS);
+        for (int i = 0; i < 97; i++) {
+            stats.addFrame(FRAME_NANOS);
+        }
+        stats.addFrame(2 * FRAME_NANOS);
+        stats.addFrame(2 * FRAME_NANOS);
+        stats.addFrame(4 * FRAME_NANOS);
+        assertEquals(3, stats.getJankyFrameCount());
+        assertEquals(5, stats.getDroppedFrameCount());
+        assertEquals(16.7, stats.getPercentileMillis(50), 0.1);
+        assertEquals(33.3, stats.getPercentileMillis(99), 0.1);
+    }
+
+    @Test
+    public void reset_dropsFrames() {
+        FrameStats stats = new FrameStats(FRAME_NANOS);
+        for (int i = 0; i < 1000; i++) {
+            stats.addFrame(3 * FRAME_NANOS);
+        }
+        stats.reset();
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.getJankyFrameCount());
+        assertEquals(0, stats.getPercentileMillis(90), 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    @Test
+    public void percentiles_ofSamples() {
+        Histogram histogram = new Histogram("request_ms");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(95, histogram.getPercentile(95));
+        assertEquals(100, histogram.getMax());
+        assertEquals("request_ms p50=50 p95=95 p99=99 max=100 count=100", histogram.toString());
+    }
+
+    @Test
+    public void percentiles_followLatestSamples() {
+        Histogram histogram = new Histogram("request_ms");
+        for (int i = 0; i < Histogram.WINDOW; i++) {
+            histogram.record(1000);
+        }
+        // The network got faster, the slow samples drop out of the window
+        for (int i = 0; i < Histogram.WINDOW; i++) {
+            histogram.record(10);
+        }
+        assertEquals(10, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getMax());
+        assertEquals(2 * Histogram.WINDOW, histogram.getCount());
+    }
+
+    @Test
+    public void reset_dropsSamples() {
+        Histogram histogram = new Histogram("bind_us");
+        histogram.record(5);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        histogram.record(7);
+        assertEquals(7, histogram.getPercentile(50));
+    }
+}
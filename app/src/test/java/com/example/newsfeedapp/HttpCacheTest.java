@@ -0,0 +1,142 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs refreshes through the {@link HttpCache} against a local mock server that supports
+ * conditional requests, and counts the response bytes it sends.
+ */
+public class HttpCacheTest {
+
+    private static final String ETAG = "\"feed-v1\"";
+    private static final int REFRESHES = 5;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private byte[] mBody;
+    private volatile String mCacheControl;
+    // Bytes of the body sent at most, to cut the response short
+    private volatile int mBodyLimit = Integer.MAX_VALUE;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicLong mBytesSent = new AtomicLong();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mBody = SearchResponses.search(50, mBaseUrl).getBytes(Charset.forName("UTF-8"));
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Cache-Control", mCacheControl);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                int length = Math.min(mBody.length, mBodyLimit);
+                exchange.sendResponseHeaders(200, length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(mBody, 0, length);
+                outputStream.close();
+                mBytesSent.addAndGet(length);
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void withoutCache_everyRefreshDownloadsTheBody() throws IOException {
+        mCacheControl = "no-store";
+        HttpCache cache = new HttpCache(mFolder.newFolder());
+
+        refresh(cache);
+
+        assertEquals(REFRESHES, mRequests.get());
+        assertEquals(REFRESHES * mBody.length, mBytesSent.get());
+    }
+
+    @Test
+    public void expiredResponse_isRevalidatedWithConditionalRequest() throws IOException {
+        mCacheControl = "max-age=0";
+        HttpCache cache = new HttpCache(mFolder.newFolder());
+
+        refresh(cache);
+
+        assertEquals(REFRESHES, mRequests.get());
+        // Only the first refresh downloads the body, the others are answered with a 304
+        assertEquals(mBody.length, mBytesSent.get());
+        assertEquals(REFRESHES - 1, cache.getRevalidatedCount());
+    }
+
+    @Test
+    public void freshResponse_isServedWithoutRequest() throws IOException {
+        mCacheControl = "max-age=60";
+        HttpCache cache = new HttpCache(mFolder.newFolder());
+
+        refresh(cache);
+
+        assertEquals(1, mRequests.get());
+        assertEquals(mBody.length, mBytesSent.get());
+        assertEquals(REFRESHES - 1, cache.getHitCount());
+    }
+
+    @Test
+    public void truncatedResponse_isNotCached() throws IOException {
+        mCacheControl = "max-age=60";
+        HttpCache cache = new HttpCache(mFolder.newFolder());
+
+        // Cut off in the middle of the results
+        mBodyLimit = mBody.length / 2;
+        List<News> news = QueryUtils.fetchNewsData(mBaseUrl + "/search?page-size=50", new RequestHandle(), cache);
+        assertTrue(news == null || news.size() < 50);
+
+        mBodyLimit = Integer.MAX_VALUE;
+        refresh(cache);
+        // The whole body is only cached by the next request
+        assertEquals(2, mRequests.get());
+        assertEquals(REFRESHES - 1, cache.getHitCount());
+    }
+
+    @Test
+    public void maxAgeMillis_readsCacheControl() {
+        assertEquals(HttpCache.DEFAULT_MAX_AGE_MILLIS, HttpCache.maxAgeMillis(null));
+        assertEquals(30000, HttpCache.maxAgeMillis("public, max-age=30"));
+        assertEquals(0, HttpCache.maxAgeMillis("no-cache, max-age=30"));
+    }
+
+    private void refresh(HttpCache cache) {
+        for (int i = 0; i < REFRESHES; i++) {
+            List<News> news = QueryUtils.fetchNewsData(mBaseUrl + "/search?page-size=50", new RequestHandle(), cache);
+            assertEquals(50, news.size());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class HttpClientTest {
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private byte[] mBody;
+    private final Set<Integer> mClientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mBody = SearchResponses.search(50, mBaseUrl).getBytes(Charset.forName("UTF-8"));
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mClientPorts.add(exchange.getRemoteAddress().getPort());
+                byte[] body = mBody;
+                String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+                    gzip.write(mBody);
+                    gzip.close();
+                    body = compressed.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void gzipResponse_isDecompressed() throws IOException {
+        HttpClient.Call call = HttpClient.newCall(new URL(mBaseUrl + "/search"), new RequestHandle(), true);
+
+        assertEquals(200, call.execute());
+        byte[] body = readAll(call.getBody());
+        call.close();
+
+        assertArrayEquals(mBody, body);
+        assertTrue(call.getBytes() < mBody.length / 4);
+    }
+
+    @Test
+    public void connections_areReused() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            HttpClient.Call call = HttpClient.newCall(new URL(mBaseUrl + "/search"), new RequestHandle(), i % 2 == 0);
+            assertEquals(200, call.execute());
+            readAll(call.getBody());
+            call.close();
+        }
+
+        // Every request after the first one reused the kept-alive connection
+        assertEquals(1, mClientPorts.size());
+    }
+
+    @Test
+    public void bodyEnd_isStampedWhenTheBodyIsReadNotWhenClosed() throws Exception {
+        HttpClient.Call call = HttpClient.newCall(new URL(mBaseUrl + "/search"), new RequestHandle(), false);
+        assertEquals(200, call.execute());
+        readAll(call.getBody());
+        // Parsing and caching the body before closing the call
+        Thread.sleep(500);
+        call.close();
+
+        assertTrue(call.getBodyMillis() < 500);
+    }
+
+    @Test
+    public void bandwidth_isMeasuredOnlyOnCallsThatAskForIt() throws IOException {
+        HttpClient.getBandwidthMeter().reset();
+        HttpClient.Call call = HttpClient.newCall(new URL(mBaseUrl + "/search"), new RequestHandle(), false);
+        assertEquals(200, call.execute());
+        readAll(call.getBody());
+        call.close();
+        assertEquals(0, HttpClient.getBandwidthMeter().getBytesPerSecond());
+
+        call = HttpClient.newCall(new URL(mBaseUrl + "/search"), new RequestHandle(), false);
+        call.setMeasuresBandwidth(true);
+        assertEquals(200, call.execute());
+        readAll(call.getBody());
+        call.close();
+        assertTrue(call.getBytes() >= BandwidthMeter.MIN_SAMPLE_BYTES);
+        assertTrue(HttpClient.getBandwidthMeter().getBytesPerSecond() > 0);
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the renditions {@link ImageQuality} picks, and measures them against a local stub of
+ * the Guardian image server throttled like a slow connection.
+ */
+public class ImageQualityTest {
+
+    private static final int VIEW_WIDTH = 1080;
+    private static final int THUMBNAILS = 16;
+    /**
+     * Throughput of each connection to the stub, 256KB/s
+     */
+    private static final long BYTES_PER_SECOND = 256 * 1024;
+    private static final int CHUNK_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final ImageQuality mQuality = new ImageQuality(300, 2000);
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private final AtomicLong mBytesServed = new AtomicLong();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/img", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // .../<width>.jpg, as large as a Guardian JPEG of that width
+                String path = exchange.getRequestURI().getPath();
+                int width = QueryUtils.renditionWidth(path);
+                byte[] body = new byte[(int) ImageQuality.estimateBytes(width)];
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                for (int offset = 0; offset < body.length; offset += CHUNK_BYTES) {
+                    int length = Math.min(CHUNK_BYTES, body.length - offset);
+                    outputStream.write(body, offset, length);
+                    outputStream.flush();
+                    mBytesServed.addAndGet(length);
+                    try {
+                        Thread.sleep(length * 1000L / BYTES_PER_SECOND);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void idealWidth_fillsViewWithoutScalingUp() {
+        assertEquals(140, ImageQuality.idealWidth(120));
+        assertEquals(500, ImageQuality.idealWidth(480));
+        assertEquals(1000, ImageQuality.idealWidth(720));
+        assertEquals(1000, ImageQuality.idealWidth(1440));
+        assertEquals(500, ImageQuality.idealWidth(0));
+    }
+
+    @Test
+    public void chooseWidth_followsNetworkTypeWhileScrolling() {
+        assertEquals(1000, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.UNMETERED, 0, false));
+        assertEquals(500, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.CELLULAR, 0, false));
+        assertEquals(140, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.SLOW, 0, false));
+        // Never sharper than the view needs
+        assertEquals(140, mQuality.chooseWidth(100, ImageQuality.Network.UNMETERED, 0, false));
+    }
+
+    @Test
+    public void chooseWidth_stepsDownWhenBandwidthIsLow() {
+        // 1000px takes about 120KB, 500px about 30KB
+        assertEquals(1000, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.UNMETERED, 1024 * 1024, false));
+        assertEquals(500, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.UNMETERED, 200 * 1024, false));
+        assertEquals(140, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.UNMETERED, 20 * 1024, false));
+    }
+
+    @Test
+    public void chooseWidth_upgradesOnceIdle() {
+        long bandwidth = 200 * 1024;
+        assertEquals(1000, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.UNMETERED, bandwidth, true));
+        assertEquals(1000, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.CELLULAR, bandwidth, true));
+        assertEquals(500, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.SLOW, bandwidth, true));
+        // Still within what the network delivers in the longer budget
+        assertEquals(500, mQuality.chooseWidth(VIEW_WIDTH, ImageQuality.Network.CELLULAR, 20 * 1024, true));
+    }
+
+    @Test
+    public void throttledNetwork_adaptiveQualityLoadsThumbnailsFaster() throws Exception {
+        long[] sharpest = load("sharpest", null);
+        long[] unmetered = load("unmetered", ImageQuality.Network.UNMETERED);
+        // The meter saw the throttle, and the policy stepped down to what fits through it
+        long measured = HttpClient.getBandwidthMeter().getBytesPerSecond();
+        assertTrue(measured > BYTES_PER_SECOND / 3 && measured < BYTES_PER_SECOND * 3);
+        long[] cellular = load("cellular", ImageQuality.Network.CELLULAR);
+        long[] slow = load("slow", ImageQuality.Network.SLOW);
+
+        assertTrue(unmetered[0] < sharpest[0] / 2);
+        assertTrue(unmetered[1] < sharpest[1]);
+        assertTrue(cellular[0] <= unmetered[0]);
+        assertTrue(slow[0] < cellular[0]);
+    }
+
+    /**
+     * Load the thumbnails of a page four at a time, like the {@link ImageLoader} does, picking
+     * each rendition with the policy.
+     *
+     * @param network how the device is connected, or null to always fetch the sharpest
+     * @return the bytes downloaded and the milliseconds until the last thumbnail arrived
+     */
+    private long[] load(final String policy, final ImageQuality.Network network) throws Exception {
+        final ThumbnailCache cache = new ThumbnailCache(mFolder.newFolder());
+        HttpClient.getBandwidthMeter().reset();
+        mBytesServed.set(0);
+        ExecutorService loaders = Executors.newFixedThreadPool(4);
+        long start = System.nanoTime();
+        try {
+            List<Future<byte[]>> images = new ArrayList<>();
+            for (int i = 0; i < THUMBNAILS; i++) {
+                final String url = mBaseUrl + "/img/" + policy + "/" + i + "/500.jpg";
+                images.add(loaders.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() {
+                        int rendition = network == null ? ImageQuality.idealWidth(VIEW_WIDTH)
+                                : mQuality.chooseWidth(VIEW_WIDTH, network, HttpClient.getBandwidthMeter().getBytesPerSecond(), false);
+                        return QueryUtils.fetchImage(url, rendition, cache);
+                    }
+                }));
+            }
+            for (Future<byte[]> image : images) {
+                assertNotNull(image.get());
+            }
+        } finally {
+            loaders.shutdown();
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        return new long[]{mBytesServed.get(), millis};
+    }
+}
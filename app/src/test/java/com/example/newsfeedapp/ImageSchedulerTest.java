@@ -0,0 +1,328 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the order {@link ImageScheduler} runs thumbnails in, and replays a fling over a local
+ * stub of the image server against the first come, first served pool it replaced.
+ */
+public class ImageSchedulerTest {
+
+    private static final int ROWS_ON_SCREEN = 5;
+    /**
+     * Rows the list moves by per frame of the fling, and frames the fling lasts
+     */
+    private static final int ROWS_PER_FRAME = 2;
+    private static final int FLING_FRAMES = 30;
+    private static final long FRAME_MILLIS = 16;
+    /**
+     * Time the stub takes to answer each thumbnail
+     */
+    private static final long LATENCY_MILLIS = 80;
+    private static final int PREFETCH_ROWS = 3;
+    private static final int POOL_SIZE = 4;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private final Set<String> mRequested = Collections.synchronizedSet(new HashSet<String>());
+
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/thumb", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequested.add(exchange.getRequestURI().getPath());
+                try {
+                    Thread.sleep(LATENCY_MILLIS);
+                } catch (InterruptedException ignored) {
+                }
+                byte[] body = new byte[(int) ImageQuality.estimateBytes(500)];
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                try {
+                    outputStream.write(body);
+                } finally {
+                    outputStream.close();
+                }
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void visibleRowsRunFirst_thenRowsAhead_thenRowsBehind() {
+        assertEquals(Arrays.asList(10, 11, 12, 20, 2, 1, 0), runOrder(1));
+        // Scrolling up, the rows above are the ones ahead
+        assertEquals(Arrays.asList(10, 11, 12, 2, 1, 0, 20), runOrder(-1));
+    }
+
+    private List<Integer> runOrder(int direction) {
+        ImageScheduler scheduler = new ImageScheduler(INLINE, 1);
+        final List<Integer> order = new ArrayList<>();
+        scheduler.setPaused(true);
+        for (final int position : new int[]{0, 1, 2, 10, 11, 12, 20}) {
+            scheduler.submit(position, false, new ImageScheduler.Task() {
+                @Override
+                public void run(RequestHandle request) {
+                    order.add(position);
+                }
+            });
+        }
+        scheduler.setViewport(10, 12, direction);
+        scheduler.setPaused(false);
+        assertEquals(7, scheduler.getCompletedCount());
+        return order;
+    }
+
+    @Test
+    public void cancel_dropsPendingRequestAndAbortsRunningOne() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ImageScheduler scheduler = new ImageScheduler(executor, 1);
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch aborted = new CountDownLatch(1);
+            ImageScheduler.Request running = scheduler.submit(0, false, new ImageScheduler.Task() {
+                @Override
+                public void run(RequestHandle request) {
+                    started.countDown();
+                    if (request.sleep(5000)) {
+                        fail("The request was not aborted");
+                    }
+                    aborted.countDown();
+                }
+            });
+            ImageScheduler.Request pending = scheduler.submit(1, false, new ImageScheduler.Task() {
+                @Override
+                public void run(RequestHandle request) {
+                    fail("A cancelled request ran");
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            pending.cancel();
+            running.cancel();
+            assertTrue(aborted.await(5, TimeUnit.SECONDS));
+            assertEquals(1, scheduler.getDroppedCount());
+            assertEquals(1, scheduler.getAbortedCount());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void setViewport_dropsPrefetchesScrolledPast() {
+        ImageScheduler scheduler = new ImageScheduler(INLINE, 1);
+        final List<Integer> order = new ArrayList<>();
+        scheduler.setPaused(true);
+        scheduler.setViewport(0, 4, 1);
+        for (final int position : new int[]{5, 6, 7}) {
+            scheduler.submit(position, true, new ImageScheduler.Task() {
+                @Override
+                public void run(RequestHandle request) {
+                    order.add(position);
+                }
+            });
+        }
+        // Flung past 5 and 6, 7 is on screen now
+        scheduler.setViewport(7, 11, 1);
+        scheduler.setPaused(false);
+        assertEquals(Arrays.asList(7), order);
+        assertEquals(2, scheduler.getDroppedCount());
+    }
+
+    @Test
+    public void prefetch_droppedByFlingIsPrefetchedAgain() {
+        ImageScheduler scheduler = new ImageScheduler(INLINE, 1);
+        final List<Integer> order = new ArrayList<>();
+        scheduler.setPaused(true);
+        scheduler.setViewport(0, 4, 1);
+        ImageScheduler.Task task = new ImageScheduler.Task() {
+            @Override
+            public void run(RequestHandle request) {
+                order.add(5);
+            }
+        };
+        ImageScheduler.Request first = scheduler.prefetch("thumbnail-5", 5, task);
+        // Queued once while pending
+        assertSame(first, scheduler.prefetch("thumbnail-5", 5, task));
+        scheduler.setViewport(7, 11, 1);
+        assertEquals(1, scheduler.getDroppedCount());
+
+        // Scrolled back up to the row, its thumbnail is prefetched again
+        scheduler.setViewport(0, 4, -1);
+        assertNotSame(first, scheduler.prefetch("thumbnail-5", 5, task));
+        scheduler.setPaused(false);
+        assertEquals(Arrays.asList(5), order);
+    }
+
+    /**
+     * Fling the list by {@code ROWS_PER_FRAME * FLING_FRAMES} rows, binding the rows that come
+     * into view and recycling the ones that leave it like a RecyclerView does, and count the
+     * thumbnails downloaded for rows only seen in passing and how long the rows the fling
+     * stopped at waited for theirs.
+     */
+    @Test
+    public void fling_savesDownloadsAndShowsStoppedAtRowsSooner() throws Exception {
+        long[] fifo = fling("fifo", false);
+        long[] scheduled = fling("scheduled", true);
+        assertTrue(scheduled[0] < fifo[0] / 4);
+        assertTrue(scheduled[1] < fifo[1] / 2);
+    }
+
+    /**
+     * @param scheduled whether to fetch with an {@link ImageScheduler}, or a fixed pool in the
+     *                  order the rows were bound
+     * @return the thumbnails downloaded for the rows the fling passed, and the milliseconds
+     * from the end of the fling until the rows it stopped at all showed their thumbnail
+     */
+    private long[] fling(final String policy, boolean scheduled) throws Exception {
+        final ThumbnailCache cache = new ThumbnailCache(mFolder.newFolder());
+        final Map<Integer, Long> arrivals = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(POOL_SIZE);
+        ImageScheduler scheduler = new ImageScheduler(pool, POOL_SIZE);
+        Map<Integer, ImageScheduler.Request> bound = new HashMap<>();
+        mRequested.clear();
+        try {
+            // At rest on the first screen
+            scheduler.setViewport(0, ROWS_ON_SCREEN - 1, 1);
+            for (int row = 0; row < ROWS_ON_SCREEN; row++) {
+                bind(policy, row, scheduled, pool, scheduler, bound, cache, arrivals);
+            }
+            awaitRows(arrivals, 0);
+
+            // Fling
+            scheduler.setPaused(scheduled);
+            int first = 0;
+            for (int frame = 0; frame < FLING_FRAMES; frame++) {
+                first += ROWS_PER_FRAME;
+                scheduler.setViewport(first, first + ROWS_ON_SCREEN - 1, 1);
+                for (int row = first - ROWS_PER_FRAME; row < first; row++) {
+                    ImageScheduler.Request request = bound.remove(row);
+                    if (request != null) {
+                        request.cancel();
+                    }
+                }
+                for (int row = first + ROWS_ON_SCREEN - ROWS_PER_FRAME; row < first + ROWS_ON_SCREEN; row++) {
+                    bind(policy, row, scheduled, pool, scheduler, bound, cache, arrivals);
+                }
+                Thread.sleep(FRAME_MILLIS);
+            }
+
+            // Settled
+            long settledAt = System.nanoTime();
+            scheduler.setPaused(false);
+            if (scheduled) {
+                for (int row = first + ROWS_ON_SCREEN; row < first + ROWS_ON_SCREEN + PREFETCH_ROWS; row++) {
+                    scheduler.submit(row, true, fetch(policy, row, cache, arrivals));
+                }
+            }
+            long shownAt = awaitRows(arrivals, first);
+
+            int passed = 0;
+            for (int row = ROWS_ON_SCREEN; row < first; row++) {
+                if (mRequested.contains(path(policy, row))) {
+                    passed++;
+                }
+            }
+            return new long[]{passed, Math.max(0, (shownAt - settledAt) / 1000000)};
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private void bind(String policy, int row, boolean scheduled, ExecutorService pool, ImageScheduler scheduler,
+                      Map<Integer, ImageScheduler.Request> bound, ThumbnailCache cache, Map<Integer, Long> arrivals) {
+        final ImageScheduler.Task task = fetch(policy, row, cache, arrivals);
+        if (scheduled) {
+            bound.put(row, scheduler.submit(row, false, task));
+        } else {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    task.run(new RequestHandle());
+                }
+            });
+        }
+    }
+
+    private ImageScheduler.Task fetch(String policy, final int row, final ThumbnailCache cache,
+                                      final Map<Integer, Long> arrivals) {
+        final String url = mBaseUrl + path(policy, row);
+        return new ImageScheduler.Task() {
+            @Override
+            public void run(RequestHandle request) {
+                if (QueryUtils.fetchImage(url, 500, cache, request) != null) {
+                    arrivals.put(row, System.nanoTime());
+                }
+            }
+        };
+    }
+
+    private static String path(String policy, int row) {
+        return "/thumb/" + policy + "/" + row + "/500.jpg";
+    }
+
+    /**
+     * Wait for the thumbnails of the screen starting at the row, and return when the last one
+     * arrived.
+     */
+    private static long awaitRows(Map<Integer, Long> arrivals, int first) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20000;
+        long last = 0;
+        for (int row = first; row < first + ROWS_ON_SCREEN; row++) {
+            while (!arrivals.containsKey(row)) {
+                assertTrue("Row " + row + " never got its thumbnail", System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+            last = Math.max(last, arrivals.get(row));
+        }
+        return last;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.newsfeedapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NewsJsonParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void parse_readsResultsInOrder() throws IOException {
+        List<News> news = parse(SearchResponses.search(3, "https://media.guim.co.uk"));
+
+        assertEquals(3, news.size());
+        News first = news.get(0);
+        assertEquals("Scientists find good news in article number 0 – live updates", first.getWebTitle());
+        assertEquals("Science", first.getSectionName());
+        assertEquals("2020-02-01T00:38:53Z", PublicationTime.toIsoString(first.getWebPublicationTime()));
+        assertEquals("https://www.theguardian.com/science/2020/feb/01/article-number-0", first.getWebUrl());
+        assertEquals("https://media.guim.co.uk/thumb/0/500.jpg", first.getThumbnailUrl());
+        assertTrue(first.getTrailText().startsWith("More than 1,370 people read article <strong>0</strong>"));
+    }
+
+    @Test
+    public void parse_handlesMissingBylineAndThumbnail() throws IOException {
+        List<News> news = parse("{\"response\":{\"results\":["
+                + "{\"webTitle\":\"a\",\"fields\":{\"trailText\":\"t\"}},"
+                + "{\"webTitle\":\"b\",\"fields\":{\"trailText\":\"t\",\"byline\":null,\"thumbnail\":null}}"
+                + "]}}");
+
+        for (News item : news) {
+            assertEquals(NewsJsonParser.UNKNOWN_AUTHOR, item.getByline());
+            assertNull(item.getThumbnailUrl());
+        }
+    }
+
+    @Test
+    public void parse_matchesDomParser() throws IOException, JSONException {
+        String json = SearchResponses.search(250, "https://media.guim.co.uk");
+        List<News> streamed = parse(json);
+        List<News> dom = parseDom(json);
+
+        assertEquals(dom.size(), streamed.size());
+        for (int i = 0; i < dom.size(); i++) {
+            assertEquals(dom.get(i).getWebTitle(), streamed.get(i).getWebTitle());
+            assertEquals(dom.get(i).getTrailText(), streamed.get(i).getTrailText());
+            assertEquals(dom.get(i).getByline(), streamed.get(i).getByline());
+            assertEquals(dom.get(i).getThumbnailUrl(), streamed.get(i).getThumbnailUrl());
+        }
+    }
+
+    private static List<News> parse(String json) throws IOException {
+        return parseStream(new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+
+    private static List<News> parseStream(InputStream inputStream) throws IOException {
+        final List<News> news = new ArrayList<>();
+        NewsJsonParser.parse(new InputStreamReader(inputStream, UTF_8), new NewsJsonParser.Listener() {
+            @Override
+            public void onNews(News item) {
+                news.add(item);
+            }
+        });
+        return news;
+    }
+
+    /**
+     * The previous extractFeatureFromJson, which built an org.json DOM of the response.
+     */
+    private static List<News> parseDom(String json) throws JSONException {
+        List<News> newsList = new ArrayList<>();
+        JSONArray results = new JSONObject(json).getJSONObject("response").getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject currentNews = results.getJSONObject(i);
+            JSONObject fields = currentNews.getJSONObject("fields");
+            String byline = !fields.isNull("byline") ? fields.getString("byline") : NewsJsonParser.UNKNOWN_AUTHOR;
+            String thumbnail = !fields.isNull("thumbnail") ? fields.getString("thumbnail") : null;
+            newsList.add(new News(thumbnail, currentNews.getString("webTitle"), fields.getString("trailText"),
+                    byline, currentNews.getString("sectionName"), PublicationTime.parse(currentNews.getString("webPublicationDate")),
+                    currentNews.getString("webUrl")));
+        }
+        return newsList;
+    }
+}
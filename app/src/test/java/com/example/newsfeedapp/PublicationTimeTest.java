@@ -0,0 +1,61 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PublicationTimeTest {
+
+    @Test
+    public void parse_readsUtcTimes() {
+        assertEquals(1580517533000L, PublicationTime.parse("2020-02-01T00:38:53Z"));
+        assertEquals("2020-02-01T00:38:53Z", PublicationTime.toIsoString(1580517533000L));
+    }
+
+    @Test
+    public void parse_unknownWithoutValidDate() {
+        assertEquals(PublicationTime.UNKNOWN, PublicationTime.parse(null));
+        assertEquals(PublicationTime.UNKNOWN, PublicationTime.parse("yesterday"));
+        assertEquals("", PublicationTime.formatDate(PublicationTime.UNKNOWN));
+        assertEquals("", PublicationTime.formatTime(PublicationTime.UNKNOWN));
+    }
+
+    @Test
+    public void format_usesDeviceTimeZone() {
+        TimeZone timeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        try {
+            long time = PublicationTime.parse("2018-03-03T16:30:00Z");
+            // The formatters are created on a thread that has not used them yet
+            final String[] labels = new String[2];
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    labels[0] = PublicationTime.formatDate(1520094600000L);
+                    labels[1] = PublicationTime.formatTime(1520094600000L);
+                }
+            });
+            thread.start();
+            thread.join();
+            assertEquals(1520094600000L, time);
+            assertEquals("Mar 03 '18", labels[0]);
+            assertEquals("4:30 PM", labels[1]);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    @Test
+    public void isRecent_withinOneDay() {
+        long now = PublicationTime.parse("2020-02-02T12:00:00Z");
+        assertTrue(PublicationTime.isRecent(now - 5 * 60 * 1000, now));
+        assertFalse(PublicationTime.isRecent(now - PublicationTime.RELATIVE_LABEL_MILLIS, now));
+        assertFalse(PublicationTime.isRecent(PublicationTime.UNKNOWN, now));
+    }
+}
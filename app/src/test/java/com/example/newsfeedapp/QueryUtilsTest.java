@@ -0,0 +1,196 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link QueryUtils} against a local stub of the Guardian search endpoint.
+ */
+public class QueryUtilsTest {
+
+    private static final long THUMBNAIL_DELAY_MS = 200;
+    private static final long SLOW_RESPONSE_MS = 5000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private HttpCache mCache;
+    private String mBaseUrl;
+    private final AtomicInteger mThumbnailRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        mCache = new HttpCache(mFolder.newFolder());
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = exchange.getRequestURI().getQuery();
+                int pageSize = Integer.parseInt(query.replaceAll(".*page-size=(\\d+).*", "$1"));
+                respond(exchange, SearchResponses.search(pageSize, mBaseUrl).getBytes(Charset.forName("UTF-8")));
+            }
+        });
+        mServer.createContext("/thumb", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mThumbnailRequests.incrementAndGet();
+                try {
+                    Thread.sleep(THUMBNAIL_DELAY_MS);
+                } catch (InterruptedException ignored) {
+                }
+                respond(exchange, new byte[16]);
+            }
+        });
+        mServer.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // A server that takes its time before answering
+                try {
+                    Thread.sleep(SLOW_RESPONSE_MS);
+                } catch (InterruptedException ignored) {
+                }
+                respond(exchange, SearchResponses.search(1, mBaseUrl).getBytes(Charset.forName("UTF-8")));
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void fetchNewsData_doesNotDownloadThumbnails() {
+        List<News> news = QueryUtils.fetchNewsData(mBaseUrl + "/search?page-size=10", new RequestHandle(), mCache);
+
+        assertEquals(10, news.size());
+        assertEquals(0, mThumbnailRequests.get());
+        assertEquals(mBaseUrl + "/thumb/0/500.jpg", news.get(0).getThumbnailUrl());
+        // Every other article has no thumbnail field
+        assertNull(news.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void fetchNewsData_timeToFirstListDoesNotGrowWithPageSize() {
+        long small = timeFetch(5);
+        long large = timeFetch(50);
+
+        // Downloading the thumbnails in line would cost 25 * THUMBNAIL_DELAY_MS for the large page
+        assertTrue(large < small + 5 * THUMBNAIL_DELAY_MS);
+        assertEquals(0, mThumbnailRequests.get());
+    }
+
+    @Test
+    public void fetchNewsData_cancelAbortsRequestInFlight() throws InterruptedException {
+        final RequestHandle request = new RequestHandle();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+                request.cancel();
+            }
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        List<News> news = QueryUtils.fetchNewsData(mBaseUrl + "/slow", request, mCache);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        canceller.join();
+
+        assertTrue(request.isCancelled());
+        assertTrue(elapsed < SLOW_RESPONSE_MS);
+        assertNull(news);
+    }
+
+    @Test
+    public void fetchImage_sharedThumbnailIsDownloadedOnce() throws Exception {
+        final ThumbnailCache cache = new ThumbnailCache(mFolder.newFolder());
+        // Articles sharing an image, bound at the same time
+        ExecutorService loaders = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<byte[]>> images = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                images.add(loaders.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() {
+                        return QueryUtils.fetchImage(mBaseUrl + "/thumb/shared/500.jpg", 500, cache);
+                    }
+                }));
+            }
+            for (Future<byte[]> image : images) {
+                assertEquals(16, image.get().length);
+            }
+        } finally {
+            loaders.shutdown();
+        }
+        assertEquals(1, mThumbnailRequests.get());
+    }
+
+    @Test
+    public void fetchImage_countsOneDiskLookupPerThumbnail() throws IOException {
+        ThumbnailCache cache = new ThumbnailCache(mFolder.newFolder());
+        // Not on disk under any of its renditions
+        assertNotNull(QueryUtils.fetchImage(mBaseUrl + "/thumb/7/500.jpg", 140, cache));
+        assertEquals(0, cache.getDiskHits());
+        assertEquals(1, cache.getDiskMisses());
+
+        // Only a blurrier rendition is on disk
+        assertNotNull(QueryUtils.fetchImage(mBaseUrl + "/thumb/7/500.jpg", 500, cache));
+        assertEquals(0, cache.getDiskHits());
+        assertEquals(2, cache.getDiskMisses());
+        // Found under the 500px rendition after missing the 1000px one, still a single lookup
+        assertNotNull(QueryUtils.fetchImage(mBaseUrl + "/thumb/7/500.jpg", 140, cache));
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(2, cache.getDiskMisses());
+    }
+
+    @Test
+    public void renditionWidth_readsGuardianImageSize() {
+        assertEquals(500, QueryUtils.renditionWidth("https://media.guim.co.uk/abc/0_0_3000_1800/500.jpg"));
+        assertEquals(1000, QueryUtils.renditionWidth("https://media.guim.co.uk/abc/0_0_3000_1800/1000.jpg"));
+        assertEquals(Integer.MAX_VALUE, QueryUtils.renditionWidth("https://example.com/image.jpg"));
+    }
+
+    private long timeFetch(int pageSize) {
+        long start = System.nanoTime();
+        List<News> news = QueryUtils.fetchNewsData(mBaseUrl + "/search?page-size=" + pageSize, new RequestHandle(), mCache);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        assertEquals(pageSize, news.size());
+        return elapsed;
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(body);
+        outputStream.close();
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the {@link RequestExecutor} against a local stub of the Guardian search endpoint that
+ * fails, throttles or stalls the requests it is told to.
+ */
+public class RequestExecutorTest {
+
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final long OPEN_MILLIS = 500;
+    private static final long HEDGE_DELAY_MILLIS = 300;
+    private static final long STALL_MILLIS = 3000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private HttpCache mCache;
+    private String mBaseUrl;
+    private RequestExecutor mExecutor;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    // What the next requests run into, requests past the script succeed
+    private final ConcurrentLinkedQueue<Fault> mFaults = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A fault injected into a response: a status other than 200 or a delay before answering.
+     */
+    private static class Fault {
+        final int mStatus;
+        final String mRetryAfter;
+        final long mDelayMillis;
+
+        Fault(int status, String retryAfter, long delayMillis) {
+            this.mStatus = status;
+            this.mRetryAfter = retryAfter;
+            this.mDelayMillis = delayMillis;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mCache = new HttpCache(mFolder.newFolder());
+        mExecutor = new RequestExecutor(new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS), 3, 20, 2000,
+                HEDGE_DELAY_MILLIS, new Random(42));
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                Fault fault = mFaults.poll();
+                if (fault != null && fault.mDelayMillis > 0) {
+                    try {
+                        Thread.sleep(fault.mDelayMillis);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                // Revalidated every time, so a cached response never hides a fault
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                if (fault != null && fault.mStatus != 200) {
+                    if (fault.mRetryAfter != null) {
+                        exchange.getResponseHeaders().set("Retry-After", fault.mRetryAfter);
+                    }
+                    exchange.sendResponseHeaders(fault.mStatus, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = SearchResponses.search(10, mBaseUrl).getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void fetchNewsData_retriesServerErrors() {
+        mFaults.add(new Fault(503, null, 0));
+        mFaults.add(new Fault(500, null, 0));
+
+        assertEquals(10, fetch().size());
+        assertEquals(3, mRequests.get());
+        assertEquals(2, mExecutor.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, mExecutor.getBreaker().getState());
+    }
+
+    @Test
+    public void fetchNewsData_waitsAsLongAsRetryAfterSays() {
+        mFaults.add(new Fault(429, "1", 0));
+
+        long start = System.nanoTime();
+        List<News> news = fetch();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(10, news.size());
+        assertEquals(2, mRequests.get());
+        assertTrue(elapsed >= 1000);
+    }
+
+    @Test
+    public void fetchNewsData_leavesApiAloneForLongRetryAfter() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        mFaults.add(new Fault(503, format.format(new Date(System.currentTimeMillis() + 60000)), 0));
+
+        assertNull(fetch());
+        assertNull(fetch());
+        assertEquals(1, mRequests.get());
+        assertEquals(1, mExecutor.getRefusedCount());
+        assertEquals(CircuitBreaker.State.OPEN, mExecutor.getBreaker().getState());
+    }
+
+    @Test
+    public void fetchNewsData_doesNotRetryClientErrors() {
+        mFaults.add(new Fault(404, null, 0));
+
+        assertNull(fetch());
+        assertEquals(1, mRequests.get());
+        assertEquals(CircuitBreaker.State.CLOSED, mExecutor.getBreaker().getState());
+    }
+
+    @Test
+    public void fetchNewsData_breakerOpensAndLetsStaleResponseBeServed() throws InterruptedException {
+        assertEquals(10, fetch().size());
+        for (int i = 0; i < 3 * FAILURE_THRESHOLD; i++) {
+            mFaults.add(new Fault(500, null, 0));
+        }
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertNull(fetch());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mExecutor.getBreaker().getState());
+
+        // Refused without a request, the last response is still there to show
+        int requests = mRequests.get();
+        assertNull(fetch());
+        assertEquals(requests, mRequests.get());
+        assertEquals(10, QueryUtils.readStaleNewsData(url(), mCache).size());
+
+        // A single trial request once the breaker has been open long enough
+        Thread.sleep(OPEN_MILLIS);
+        assertEquals(10, fetch().size());
+        assertEquals(requests + 1, mRequests.get());
+        assertEquals(CircuitBreaker.State.CLOSED, mExecutor.getBreaker().getState());
+    }
+
+    @Test
+    public void fetchNewsData_hedgesStalledRequest() {
+        mFaults.add(new Fault(200, null, STALL_MILLIS));
+
+        long start = System.nanoTime();
+        List<News> news = fetch();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(10, news.size());
+        assertTrue(elapsed < STALL_MILLIS);
+        assertEquals(1, mExecutor.getHedgeCount());
+        assertEquals(1, mExecutor.getHedgeWinCount());
+    }
+
+    @Test
+    public void fetchNewsData_ridesOutFlakyApi() {
+        Random random = new Random(7);
+        int succeeded = 0;
+        for (int i = 0; i < 50; i++) {
+            // One in four requests fails, one in ten stalls
+            int roll = random.nextInt(20);
+            if (roll < 5) {
+                mFaults.add(new Fault(roll < 3 ? 503 : 502, null, 0));
+            } else if (roll < 7) {
+                mFaults.add(new Fault(200, null, 1000));
+            }
+            if (fetch() != null) {
+                succeeded++;
+            }
+            mFaults.clear();
+        }
+
+        assertEquals(50, succeeded);
+        assertTrue(mExecutor.getLatencyPercentile(99) < 1000);
+    }
+
+    @Test
+    public void fetchNewsData_cancelStopsRetries() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            mFaults.add(new Fault(429, "2", 0));
+        }
+        final RequestHandle request = new RequestHandle();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+                request.cancel();
+            }
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        assertNull(mExecutor.fetchNewsData(url(), request, mCache));
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        canceller.join();
+
+        assertTrue(elapsed < 2000);
+        assertEquals(1, mRequests.get());
+        assertEquals(CircuitBreaker.State.CLOSED, mExecutor.getBreaker().getState());
+    }
+
+    @Test
+    public void fetchNewsData_sameUrlAtOnceMakesOneRequest() throws Exception {
+        mFaults.add(new Fault(200, null, 200));
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<News>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(new Callable<List<News>>() {
+                    @Override
+                    public List<News> call() {
+                        return fetch();
+                    }
+                }));
+            }
+            for (Future<List<News>> result : results) {
+                assertEquals(10, result.get().size());
+            }
+        } finally {
+            callers.shutdown();
+        }
+        assertEquals(1, mRequests.get());
+        assertEquals(3, mExecutor.getFlights().getCoalescedCount());
+    }
+
+    @Test
+    public void retryAfterMillis_readsSecondsAndDates() {
+        long now = 1500000000000L;
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        assertEquals(120000, RequestExecutor.retryAfterMillis("120", now));
+        assertEquals(30000, RequestExecutor.retryAfterMillis(format.format(new Date(now + 30000)), now));
+        assertEquals(0, RequestExecutor.retryAfterMillis(format.format(new Date(now - 30000)), now));
+        assertEquals(-1, RequestExecutor.retryAfterMillis("soon", now));
+        assertEquals(-1, RequestExecutor.retryAfterMillis(null, now));
+    }
+
+    @Test
+    public void backoffMillis_growsWithinCap() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long ceiling = Math.min(2000, 20L << (attempt - 1));
+            for (int i = 0; i < 100; i++) {
+                long delay = mExecutor.backoffMillis(attempt);
+                assertTrue(delay >= 0 && delay < Math.max(1, ceiling));
+            }
+        }
+    }
+
+    private List<News> fetch() {
+        return mExecutor.fetchNewsData(url(), new RequestHandle(), mCache);
+    }
+
+    private String url() {
+        return mBaseUrl + "/search?page-size=10";
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.newsfeedapp;
+
+/**
+ * Builds Guardian search responses shaped like the ones recorded from the live API,
+ * including the fields the app doesn't read.
+ */
+class SearchResponses {
+
+    private SearchResponses() {
+    }
+
+    /**
+     * Return a search response with the given number of results. Every other article has no
+     * thumbnail and every fifth one has no byline.
+     *
+     * @param count         number of results
+     * @param thumbnailBase base url the thumbnail urls point to
+     */
+    static String search(int count, String thumbnailBase) {
+        StringBuilder json = new StringBuilder(count * 1200);
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(count * 40)
+                .append(",\"startIndex\":1,\"pageSize\":").append(count)
+                .append(",\"currentPage\":1,\"pages\":40,\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String day = String.format("%02d", 1 + i % 28);
+            appendResult(json, i, "science/2020/feb/" + day + "/article-number-" + i,
+                    "2020-02-" + day + "T" + String.format("%02d", i % 24) + ":38:53Z", thumbnailBase);
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * Return a response of a feed ordered newest first, where article i was published i
+     * minutes after the first one.
+     *
+     * @param newest        number of the newest article in the response
+     * @param count         number of results, going back from the newest
+     * @param thumbnailBase base url the thumbnail urls point to
+     */
+    static String feed(int newest, int count, String thumbnailBase) {
+        StringBuilder json = new StringBuilder(count * 1200);
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(newest + 1)
+                .append(",\"startIndex\":1,\"pageSize\":").append(count)
+                .append(",\"currentPage\":1,\"pages\":1,\"orderBy\":\"newest\",\"results\":[");
+        for (int i = newest; i > newest - count; i--) {
+            if (i < newest) {
+                json.append(',');
+            }
+            appendResult(json, i, "science/2020/feb/article-number-" + i,
+                    PublicationTime.toIsoString(feedTime(i)), thumbnailBase);
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * Return the publication time of an article of {@link #feed(int, int, String)}.
+     */
+    static long feedTime(int i) {
+        return PublicationTime.parse("2020-02-01T00:00:00Z") + i * 60 * 1000L;
+    }
+
+    private static void appendResult(StringBuilder json, int i, String path, String date, String thumbnailBase) {
+        json.append("{\"id\":\"").append(path).append("\",")
+                .append("\"type\":\"article\",\"sectionId\":\"science\",\"sectionName\":\"Science\",")
+                .append("\"webPublicationDate\":\"").append(date).append("\",")
+                .append("\"webTitle\":\"Scientists find good news in article number ").append(i)
+                .append(" – live updates\",")
+                .append("\"webUrl\":\"https://www.theguardian.com/").append(path).append("\",")
+                .append("\"apiUrl\":\"https://content.guardianapis.com/").append(path).append("\",")
+                .append("\"fields\":{")
+                .append("\"headline\":\"Scientists find good news in article number ").append(i).append("\",")
+                .append("\"trailText\":\"More than 1,370 people read article <strong>").append(i)
+                .append("</strong> as officials try to keep up with a story which has reached Europe, ")
+                .append("the US and Australia\",")
+                .append("\"shortUrl\":\"https://gu.com/p/").append(Integer.toString(i, 36)).append("\"");
+        if (i % 2 == 0) {
+            json.append(",\"thumbnail\":\"").append(thumbnailBase).append("/thumb/")
+                    .append(i).append("/500.jpg\"");
+        }
+        if (i % 5 != 0) {
+            json.append(",\"byline\":\"Nicola Slawson (now), Molly Blackall and Alison Rourke (earlier)\"");
+        }
+        json.append("},\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+    }
+}
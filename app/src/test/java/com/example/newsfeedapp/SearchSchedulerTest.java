@@ -0,0 +1,124 @@
+package com.example.newsfeedapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Types into the {@link SearchScheduler} on a clock the test moves forward by hand.
+ */
+public class SearchSchedulerTest {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    private final ManualTimer mTimer = new ManualTimer();
+    private final List<String> mSearches = new ArrayList<>();
+    private SearchScheduler mScheduler;
+
+    /**
+     * Runs what was posted once the clock reaches its time.
+     */
+    private static class ManualTimer implements SearchScheduler.Timer {
+        private long mNow;
+        private Runnable mRunnable;
+        private long mDueMillis;
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            mRunnable = runnable;
+            mDueMillis = mNow + delayMillis;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            if (runnable == mRunnable) {
+                mRunnable = null;
+            }
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+            if (mRunnable != null && mDueMillis <= mNow) {
+                Runnable runnable = mRunnable;
+                mRunnable = null;
+                runnable.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mScheduler = new SearchScheduler(mTimer, DEBOUNCE_MILLIS, new SearchScheduler.Callback() {
+            @Override
+            public void onSearch(String query) {
+                mSearches.add(query);
+            }
+        });
+    }
+
+    @Test
+    public void typing_issuesOnlyTheTextLeftAlone() {
+        type("c", "cl", "cli", "clim");
+        assertTrue(mSearches.isEmpty());
+
+        mTimer.advance(DEBOUNCE_MILLIS);
+        assertEquals(Collections.singletonList("clim"), mSearches);
+        assertEquals(1, mScheduler.getIssuedCount());
+        assertEquals(3, mScheduler.getSuppressedCount());
+    }
+
+    @Test
+    public void sameQueryAsLastIssued_isDropped() {
+        type("climate");
+        mTimer.advance(DEBOUNCE_MILLIS);
+
+        // Typed on and deleted again before the window is over
+        type("climate ", "climate");
+        mTimer.advance(DEBOUNCE_MILLIS);
+        mScheduler.submit("climate");
+
+        assertEquals(Collections.singletonList("climate"), mSearches);
+        assertEquals(1, mScheduler.getIssuedCount());
+        assertEquals(3, mScheduler.getSuppressedCount());
+    }
+
+    @Test
+    public void submit_issuesRightAwayInsteadOfThePendingQuery() {
+        type("elec");
+        mScheduler.submit("election");
+        mTimer.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(Collections.singletonList("election"), mSearches);
+        assertEquals(1, mScheduler.getIssuedCount());
+        assertEquals(1, mScheduler.getSuppressedCount());
+    }
+
+    @Test
+    public void cancel_dropsThePendingQuery() {
+        type("foot");
+        mScheduler.cancel();
+        mTimer.advance(DEBOUNCE_MILLIS);
+        type("football");
+        mTimer.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(Collections.singletonList("football"), mSearches);
+        assertEquals(1, mScheduler.getIssuedCount());
+        assertEquals(1, mScheduler.getSuppressedCount());
+    }
+
+    /**
+     * Change the text to each of the queries in turn, a key stroke every 100ms.
+     */
+    private void type(String... queries) {
+        for (String query : queries) {
+            mScheduler.onQueryChanged(query);
+            mTimer.advance(DEBOUNCE_MILLIS / 3);
+        }
+    }
+}
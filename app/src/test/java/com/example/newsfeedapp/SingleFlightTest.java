@@ -0,0 +1,156 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private static final ExecutorService sExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * A call that blocks until released, or until it is cancelled.
+     */
+    private static class BlockingCall implements SingleFlight.Call<String> {
+        final AtomicInteger mCalls = new AtomicInteger();
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        volatile RequestHandle mRequest;
+
+        @Override
+        public String call(RequestHandle request) {
+            mCalls.incrementAndGet();
+            mRequest = request;
+            mStarted.countDown();
+            while (!request.isCancelled()) {
+                try {
+                    if (mRelease.await(10, TimeUnit.MILLISECONDS)) {
+                        return "result";
+                    }
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void execute_concurrentCallersShareOneCall() throws Exception {
+        final SingleFlight<String> flights = new SingleFlight<>(sExecutor, 0);
+        final BlockingCall call = new BlockingCall();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(submit(executor, flights, new RequestHandle(), call));
+            assertTrue(call.mStarted.await(1, TimeUnit.SECONDS));
+            for (int i = 0; i < 4; i++) {
+                results.add(submit(executor, flights, new RequestHandle(), call));
+            }
+            while (flights.getCoalescedCount() < 4) {
+                Thread.sleep(5);
+            }
+            call.mRelease.countDown();
+            for (Future<String> result : results) {
+                assertEquals("result", result.get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(1, call.mCalls.get());
+            assertEquals(5, flights.getCallCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_callFinishedIsMadeAgain() {
+        SingleFlight<String> flights = new SingleFlight<>(sExecutor, 0);
+        final AtomicInteger calls = new AtomicInteger();
+        SingleFlight.Call<String> call = new SingleFlight.Call<String>() {
+            @Override
+            public String call(RequestHandle request) {
+                return "call " + calls.incrementAndGet();
+            }
+        };
+        assertEquals("call 1", flights.execute("key", new RequestHandle(), call));
+        assertEquals("call 2", flights.execute("key", new RequestHandle(), call));
+        assertEquals(0, flights.getCoalescedCount());
+    }
+
+    @Test
+    public void cancel_oneCallerLeavesCallToOthers() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>(sExecutor, 0);
+        BlockingCall call = new BlockingCall();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RequestHandle first = new RequestHandle();
+            Future<String> firstResult = submit(executor, flights, first, call);
+            assertTrue(call.mStarted.await(1, TimeUnit.SECONDS));
+            Future<String> secondResult = submit(executor, flights, new RequestHandle(), call);
+            while (flights.getCoalescedCount() < 1) {
+                Thread.sleep(5);
+            }
+
+            // The caller making the call gives up, the call goes on for the other one
+            first.cancel();
+            assertNull(firstResult.get(1, TimeUnit.SECONDS));
+            assertFalse(call.mRequest.isCancelled());
+            call.mRelease.countDown();
+            assertEquals("result", secondResult.get(1, TimeUnit.SECONDS));
+            assertEquals(0, flights.getAbortedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancel_everyCallerAbortsCallAfterGrace() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>(sExecutor, 300);
+        BlockingCall call = new BlockingCall();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RequestHandle first = new RequestHandle();
+            Future<String> firstResult = submit(executor, flights, first, call);
+            assertTrue(call.mStarted.await(1, TimeUnit.SECONDS));
+            first.cancel();
+            assertNull(firstResult.get(1, TimeUnit.SECONDS));
+
+            // A caller replacing the cancelled one within the grace joins the call
+            RequestHandle second = new RequestHandle();
+            Future<String> secondResult = submit(executor, flights, second, call);
+            Thread.sleep(500);
+            assertFalse(call.mRequest.isCancelled());
+            assertEquals(1, flights.getCoalescedCount());
+
+            // Once nobody waits any more, the call is aborted after the grace
+            second.cancel();
+            assertNull(secondResult.get(1, TimeUnit.SECONDS));
+            assertFalse(call.mRequest.isCancelled());
+            Thread.sleep(500);
+            assertTrue(call.mRequest.isCancelled());
+            assertEquals(1, flights.getAbortedCount());
+            assertEquals(1, call.mCalls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Future<String> submit(ExecutorService executor, final SingleFlight<String> flights,
+                                         final RequestHandle request, final SingleFlight.Call<String> call) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return flights.execute("key", request, call);
+            }
+        });
+    }
+}
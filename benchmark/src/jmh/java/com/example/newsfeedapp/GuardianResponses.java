@@ -0,0 +1,49 @@
+package com.example.newsfeedapp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Search responses of the Guardian API for the benchmarks, grown from the recorded response
+ * in search-10.json to the number of results asked for.
+ */
+final class GuardianResponses {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String RECORDED_RESPONSE = "/search-10.json";
+
+    private GuardianResponses() {
+    }
+
+    /**
+     * Return the body of a search response with the given number of results.
+     */
+    static byte[] search(int resultCount) throws IOException {
+        InputStream inputStream = GuardianResponses.class.getResourceAsStream(RECORDED_RESPONSE);
+        JsonObject root;
+        try {
+            root = JsonParser.parseReader(new InputStreamReader(inputStream, UTF_8)).getAsJsonObject();
+        } finally {
+            inputStream.close();
+        }
+        JsonObject response = root.getAsJsonObject("response");
+        JsonArray recorded = response.getAsJsonArray("results");
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < resultCount; i++) {
+            JsonObject result = recorded.get(i % recorded.size()).getAsJsonObject().deepCopy();
+            // Keep the articles apart, as they are in a real response
+            result.addProperty("webUrl", result.get("webUrl").getAsString() + "-" + i);
+            results.add(result);
+        }
+        response.add("results", results);
+        response.addProperty("pageSize", resultCount);
+        return root.toString().getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.newsfeedapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the steps a search response goes through before it is shown: reading the
+ * stream, parsing the JSON, building the {@link News} and handling their publication dates.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IngestBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    public int results;
+
+    private byte[] mBody;
+    private List<News> mNews;
+    private String[] mDates;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBody = GuardianResponses.search(results);
+        mNews = parseFeed();
+        mDates = new String[mNews.size()];
+        for (int i = 0; i < mDates.length; i++) {
+            mDates[i] = PublicationTime.toIsoString(mNews.get(i).getWebPublicationTime());
+        }
+    }
+
+    /**
+     * Decode the response into characters, the floor under any parsing of it.
+     */
+    @Benchmark
+    public long readStream() throws IOException {
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(mBody), GuardianResponses.UTF_8);
+        char[] buffer = new char[8192];
+        long length = 0;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public List<News> parseFeed() throws IOException {
+        List<News> news = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(mBody), news);
+        return news;
+    }
+
+    /**
+     * The parsing replaced by the streaming parser: the whole response read into a String,
+     * then an org.json DOM built from it. The bytes it allocates per operation are what
+     * {@link #parseFeed()} saves.
+     */
+    @Benchmark
+    public List<News> parseFeedDom() throws IOException, JSONException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(mBody),
+                GuardianResponses.UTF_8));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+
+        List<News> newsList = new ArrayList<>();
+        JSONArray results = new JSONObject(output.toString()).getJSONObject("response").getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject currentNews = results.getJSONObject(i);
+            JSONObject fields = currentNews.getJSONObject("fields");
+            String byline = !fields.isNull("byline") ? fields.getString("byline") : NewsJsonParser.UNKNOWN_AUTHOR;
+            String thumbnail = !fields.isNull("thumbnail") ? fields.getString("thumbnail") : null;
+            newsList.add(new News(thumbnail, currentNews.getString("webTitle"), fields.getString("trailText"),
+                    byline, currentNews.getString("sectionName"),
+                    PublicationTime.parse(currentNews.getString("webPublicationDate")), currentNews.getString("webUrl")));
+        }
+        return newsList;
+    }
+
+    @Benchmark
+    public void constructNews(Blackhole blackhole) {
+        for (News news : mNews) {
+            blackhole.consume(new News(news.getThumbnailUrl(), news.getWebTitle(), news.getTrailText(),
+                    news.getByline(), news.getSectionName(), news.getWebPublicationTime(), news.getWebUrl()));
+        }
+    }
+
+    @Benchmark
+    public void parseDates(Blackhole blackhole) {
+        for (String date : mDates) {
+            blackhole.consume(PublicationTime.parse(date));
+        }
+    }
+
+    /**
+     * Build the date and time labels of every row, as binding the feed does. Compare with
+     * {@link #formatDatesOnBind(Blackhole)} for the time and bytes saved per bind.
+     */
+    @Benchmark
+    public void formatDates(Blackhole blackhole) {
+        for (News news : mNews) {
+            blackhole.consume(PublicationTime.formatDate(news.getWebPublicationTime()));
+            blackhole.consume(PublicationTime.formatTime(news.getWebPublicationTime()));
+        }
+    }
+
+    /**
+     * Build the labels the way rows were bound before the dates were parsed once when read:
+     * the raw date parsed twice per row, with new formatters each time.
+     */
+    @Benchmark
+    public void formatDatesOnBind(Blackhole blackhole) throws ParseException {
+        for (String date : mDates) {
+            Date dateOut = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault()).parse(date);
+            blackhole.consume(new SimpleDateFormat("MMM dd ''yy", Locale.US).format(dateOut));
+            dateOut = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault()).parse(date);
+            blackhole.consume(new SimpleDateFormat("h:mm a", Locale.US).format(dateOut));
+        }
+    }
+}
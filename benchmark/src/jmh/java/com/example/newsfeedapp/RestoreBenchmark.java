@@ -0,0 +1,86 @@
+package com.example.newsfeedapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks restoring the feed on a cold start from a {@link NewsCodec} snapshot, against
+ * parsing the search response it was made of again.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RestoreBenchmark {
+
+    @Param({"500"})
+    public int results;
+
+    private byte[] mResponse;
+    private byte[] mSnapshot;
+    private File mFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = GuardianResponses.search(results);
+        List<News> news = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(mResponse), news);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        NewsCodec.write(System.currentTimeMillis(), news, outputStream);
+        mSnapshot = outputStream.toByteArray();
+
+        mFile = File.createTempFile("snapshot", ".bin");
+        FileOutputStream fileOutputStream = new FileOutputStream(mFile);
+        try {
+            fileOutputStream.write(mSnapshot);
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public List<News> parseResponse() throws IOException {
+        List<News> news = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(mResponse), news);
+        return news;
+    }
+
+    @Benchmark
+    public NewsCodec.Snapshot decodeSnapshot() throws IOException {
+        return NewsCodec.read(ByteBuffer.wrap(mSnapshot));
+    }
+
+    /**
+     * Restore the way the app does, mapping the snapshot file into memory.
+     */
+    @Benchmark
+    public NewsCodec.Snapshot restoreMappedFile() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return NewsCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.newsfeedapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks searching the stored news as the user types, over as many articles as a week of
+ * stored feeds holds. The articles are made up of the words of the recorded response, shuffled
+ * with a fixed seed, so the words are as long and as common as in real news.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+
+    @Param({"1000", "10000"})
+    public int articles;
+
+    private List<News> mNews;
+    private SearchIndex mIndex;
+    private String mWord;
+    private String mTwoWords;
+    private String mPrefix;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<News> recorded = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(GuardianResponses.search(10)), recorded);
+        List<String> titleWords = new ArrayList<>();
+        List<String> trailWords = new ArrayList<>();
+        for (News news : recorded) {
+            titleWords.addAll(SearchIndex.tokenize(news.getWebTitle()));
+            trailWords.addAll(SearchIndex.tokenize(news.getTrailText()));
+        }
+
+        Random random = new Random(42);
+        mNews = new ArrayList<>(articles);
+        for (int i = 0; i < articles; i++) {
+            News news = recorded.get(i % recorded.size());
+            mNews.add(new News(news.getThumbnailUrl(), sentence(random, titleWords, 10), sentence(random, trailWords, 30),
+                    news.getByline(), news.getSectionName(), news.getWebPublicationTime() - i * 60000L,
+                    news.getWebUrl() + "-" + i));
+        }
+        mIndex = new SearchIndex();
+        mIndex.addAll(mNews);
+
+        mWord = titleWords.get(0);
+        mTwoWords = titleWords.get(0) + " " + trailWords.get(0);
+        mPrefix = titleWords.get(1).substring(0, Math.min(2, titleWords.get(1).length()));
+    }
+
+    @Benchmark
+    public List<News> searchWord() {
+        return mIndex.search(mWord + " ", 50);
+    }
+
+    @Benchmark
+    public List<News> searchTwoWords() {
+        return mIndex.search(mTwoWords + " ", 50);
+    }
+
+    /**
+     * Search for a word still being typed, the most frequent search while typing.
+     */
+    @Benchmark
+    public List<News> searchPrefix() {
+        return mIndex.search(mPrefix, 50);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SearchIndex buildIndex() {
+        SearchIndex index = new SearchIndex();
+        index.addAll(mNews);
+        return index;
+    }
+
+    private static String sentence(Random random, List<String> words, int length) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sentence.append(i == 0 ? "" : " ").append(words.get(random.nextInt(words.size())));
+        }
+        return sentence.toString();
+    }
+}
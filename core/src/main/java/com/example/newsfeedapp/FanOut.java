@@ -0,0 +1,118 @@
+package com.example.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a set of tasks in parallel and hands over their results in the order they finish, so
+ * the fastest results can be used while slower tasks are still running. How many tasks run
+ * at the same time is bounded by the executor.
+ */
+public class FanOut<K, V> {
+
+    /**
+     * A task that can be aborted from another thread.
+     */
+    public interface Task<V> {
+        V call() throws Exception;
+
+        void cancel();
+    }
+
+    /**
+     * Interface for receiving the results of the tasks, on the thread that runs the fan-out.
+     */
+    public interface Listener<K, V> {
+        /**
+         * @param key    key of the task
+         * @param value  result of the task, or null if it failed
+         * @param millis time the task took to run
+         */
+        void onResult(K key, V value, long millis);
+    }
+
+    private final Executor mExecutor;
+
+    /**
+     * Constructs a new {@link FanOut}
+     *
+     * @param executor Executor the tasks run on
+     */
+    public FanOut(Executor executor) {
+        this.mExecutor = executor;
+    }
+
+    /**
+     * Run the tasks and wait for their results until the timeout. The tasks still running
+     * when it expires are cancelled.
+     *
+     * @return the keys of the tasks that did not finish in time
+     */
+    public List<K> run(Map<K, ? extends Task<V>> tasks, long timeoutMillis, Listener<K, V> listener)
+            throws InterruptedException {
+        CompletionService<Result<K, V>> completionService = new ExecutorCompletionService<>(mExecutor);
+        final Map<K, Task<V>> pending = new LinkedHashMap<>();
+        for (final Map.Entry<K, ? extends Task<V>> entry : tasks.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue());
+            completionService.submit(new Callable<Result<K, V>>() {
+                @Override
+                public Result<K, V> call() {
+                    long start = System.nanoTime();
+                    V value = null;
+                    try {
+                        value = entry.getValue().call();
+                    } catch (Exception ignored) {
+                        // Reported as a failed task
+                    }
+                    return new Result<>(entry.getKey(), value, (System.nanoTime() - start) / 1000000);
+                }
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (!pending.isEmpty()) {
+                Future<Result<K, V>> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    break;
+                }
+                Result<K, V> result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    // The wrapper catches everything the task throws
+                    throw new IllegalStateException(e);
+                }
+                pending.remove(result.mKey);
+                listener.onResult(result.mKey, result.mValue, result.mMillis);
+            }
+        } finally {
+            // Also when the caller is interrupted, nobody waits for these anymore
+            for (Task<V> task : pending.values()) {
+                task.cancel();
+            }
+        }
+        return new ArrayList<>(pending.keySet());
+    }
+
+    private static class Result<K, V> {
+        final K mKey;
+        final V mValue;
+        final long mMillis;
+
+        Result(K key, V value, long millis) {
+            this.mKey = key;
+            this.mValue = value;
+            this.mMillis = millis;
+        }
+    }
+}
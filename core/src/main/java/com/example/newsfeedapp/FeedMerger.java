@@ -0,0 +1,62 @@
+package com.example.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the news of several queries into one feed, newest first, as the results of each
+ * query arrive. An article found by more than one query is only kept once.
+ */
+public class FeedMerger {
+
+    static final Comparator<News> NEWEST_FIRST = new Comparator<News>() {
+        @Override
+        public int compare(News first, News second) {
+            long firstTime = first.getWebPublicationTime();
+            long secondTime = second.getWebPublicationTime();
+            return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+        }
+    };
+
+    private final Set<String> mUrls = new HashSet<>();
+    private List<News> mNews = new ArrayList<>();
+
+    /**
+     * Merge the results of one more query into the feed.
+     *
+     * @return the merged feed, which later results don't change
+     */
+    public List<News> add(List<News> news) {
+        List<News> added = new ArrayList<>();
+        for (News item : news) {
+            if (item.getWebUrl() == null || mUrls.add(item.getWebUrl())) {
+                added.add(item);
+            }
+        }
+        Collections.sort(added, NEWEST_FIRST);
+
+        // Both lists are sorted, so one pass over them merges them
+        List<News> merged = new ArrayList<>(mNews.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < mNews.size() && j < added.size()) {
+            if (NEWEST_FIRST.compare(added.get(j), mNews.get(i)) < 0) {
+                merged.add(added.get(j++));
+            } else {
+                merged.add(mNews.get(i++));
+            }
+        }
+        merged.addAll(mNews.subList(i, mNews.size()));
+        merged.addAll(added.subList(j, added.size()));
+        mNews = merged;
+        return merged;
+    }
+
+    public List<News> getNews() {
+        return mNews;
+    }
+}
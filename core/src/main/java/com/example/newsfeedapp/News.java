@@ -0,0 +1,98 @@
+package com.example.newsfeedapp;
+
+/**
+ * An {@link News} object contains information related to a single article.
+ * <p>
+ * News are kept by the hundred for the feed and the offline store, so the section name and
+ * byline, which repeat across news, come from a {@link StringPool} shared by all of them.
+ */
+public class News {
+
+    private String thumbnailUrl;
+    private String webTitle;
+    private String trailText;
+    private String byline;
+    private String sectionName;
+    private long webPublicationTime;
+    private String webUrl;
+
+    /**
+     * Constructs a new {@link News} object
+     *
+     * @param thumbnailUrl       Url to the thumbnail of the article
+     * @param webTitle           Title of the article
+     * @param trailText          TrailText of the article
+     * @param byline             Author of the article
+     * @param sectionName        Section for the article
+     * @param webPublicationTime Publication time for the article in epoch millis, parsed by {@link PublicationTime}
+     * @param webUrl             Url of the article
+     */
+    public News(String thumbnailUrl, String webTitle, String trailText, String byline, String sectionName, long webPublicationTime, String webUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+        this.webTitle = webTitle;
+        this.trailText = trailText;
+        this.byline = StringPool.intern(byline);
+        this.sectionName = StringPool.intern(sectionName);
+        this.webPublicationTime = webPublicationTime;
+        this.webUrl = webUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public String getWebTitle() {
+        return webTitle;
+    }
+
+    public String getTrailText() {
+        return trailText;
+    }
+
+    public String getByline() {
+        return byline;
+    }
+
+    public String getSectionName() {
+        return sectionName;
+    }
+
+    public long getWebPublicationTime() {
+        return webPublicationTime;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    /**
+     * Two news are equal when everything shown of them is, which is what decides whether a
+     * row of the feed has to be bound again.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof News)) {
+            return false;
+        }
+        News other = (News) o;
+        return equal(thumbnailUrl, other.thumbnailUrl)
+                && equal(webTitle, other.webTitle)
+                && equal(trailText, other.trailText)
+                && equal(byline, other.byline)
+                && equal(sectionName, other.sectionName)
+                && webPublicationTime == other.webPublicationTime
+                && equal(webUrl, other.webUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return webUrl != null ? webUrl.hashCode() : 0;
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+}
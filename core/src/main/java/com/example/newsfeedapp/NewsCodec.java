@@ -0,0 +1,206 @@
+package com.example.newsfeedapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary format of a list of {@link News}, read back without any parsing beyond
+ * copying out the strings. A snapshot starts with a header:
+ * <pre>
+ * int   magic "NEWS"
+ * short version
+ * long  time the news were fetched at, in epoch millis
+ * int   number of news
+ * </pre>
+ * followed by the news, each its publication time as a long in epoch millis and then its
+ * thumbnail url, title, trail text, byline, section name and url as UTF-8 bytes prefixed with
+ * their length plus one as a varint, 0 standing for null. All numbers are big-endian.
+ */
+public final class NewsCodec {
+
+    static final int MAGIC = 0x4E455753;
+    static final short VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private NewsCodec() {
+    }
+
+    /**
+     * News read back from a snapshot, and when they were fetched.
+     */
+    public static class Snapshot {
+        private final long mFetchedAt;
+        private final List<News> mNews;
+
+        public Snapshot(long fetchedAt, List<News> news) {
+            this.mFetchedAt = fetchedAt;
+            this.mNews = news;
+        }
+
+        public long getFetchedAt() {
+            return mFetchedAt;
+        }
+
+        public List<News> getNews() {
+            return mNews;
+        }
+    }
+
+    /**
+     * Write the news as a snapshot.
+     *
+     * @param fetchedAt time the news were fetched at, in epoch millis
+     */
+    public static void write(long fetchedAt, List<News> news, OutputStream outputStream) throws IOException {
+        Buffer buffer = new Buffer(64 + news.size() * 512);
+        buffer.writeInt(MAGIC);
+        buffer.writeShort(VERSION);
+        buffer.writeLong(fetchedAt);
+        buffer.writeInt(news.size());
+        for (News item : news) {
+            buffer.writeLong(item.getWebPublicationTime());
+            buffer.writeString(item.getThumbnailUrl());
+            buffer.writeString(item.getWebTitle());
+            buffer.writeString(item.getTrailText());
+            buffer.writeString(item.getByline());
+            buffer.writeString(item.getSectionName());
+            buffer.writeString(item.getWebUrl());
+        }
+        outputStream.write(buffer.mBytes, 0, buffer.mSize);
+    }
+
+    /**
+     * Read a snapshot from the buffer, e.g. a file mapped into memory.
+     *
+     * @throws IOException if the buffer does not hold a whole snapshot of this version
+     */
+    public static Snapshot read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a news snapshot");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long fetchedAt = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 14) {
+                // Each news takes at least its time and six empty fields
+                throw new IOException("Corrupt snapshot, " + count + " news");
+            }
+            List<News> news = new ArrayList<>(count);
+            // Strings are copied out of direct buffers through one scratch array
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                long webPublicationTime = buffer.getLong();
+                String thumbnailUrl = readString(buffer, scratch);
+                String webTitle = readString(buffer, scratch);
+                String trailText = readString(buffer, scratch);
+                String byline = readString(buffer, scratch);
+                String sectionName = readString(buffer, scratch);
+                String webUrl = readString(buffer, scratch);
+                news.add(new News(thumbnailUrl, webTitle, trailText, byline, sectionName, webPublicationTime, webUrl));
+            }
+            return new Snapshot(fetchedAt, news);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot");
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) throws IOException {
+        int length = readVarint(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IOException("Truncated snapshot");
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, UTF_8);
+    }
+
+    private static int readVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt snapshot, varint too long");
+    }
+
+    /**
+     * Growable big-endian byte array, written out in one go.
+     */
+    private static class Buffer {
+        private byte[] mBytes;
+        private int mSize;
+
+        Buffer(int capacity) {
+            mBytes = new byte[capacity];
+        }
+
+        void writeShort(int value) {
+            ensure(2);
+            mBytes[mSize++] = (byte) (value >> 8);
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                mBytes[mSize++] = (byte) (value >> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                mBytes[mSize++] = (byte) (value >> shift);
+            }
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, mBytes, mSize, bytes.length);
+            mSize += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (mSize + extra > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mSize + extra));
+            }
+        }
+    }
+}
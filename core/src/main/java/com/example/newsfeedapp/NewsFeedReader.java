@@ -0,0 +1,35 @@
+package com.example.newsfeedapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Reads a search response of the Guardian API into {@link News} as it is streamed. Nothing
+ * here touches the Android framework, so the ingest pipeline also runs on a plain JVM.
+ */
+public final class NewsFeedReader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private NewsFeedReader() {
+    }
+
+    /**
+     * Read the news of the response into the list. The news read before a malformed part of
+     * the response are kept in the list when the exception is thrown.
+     *
+     * @throws com.google.gson.stream.MalformedJsonException if the response is not valid JSON
+     * @throws IllegalStateException                         if the JSON is not a search response
+     */
+    public static void read(InputStream inputStream, final List<News> newsList) throws IOException {
+        NewsJsonParser.parse(new InputStreamReader(inputStream, UTF_8), new NewsJsonParser.Listener() {
+            @Override
+            public void onNews(News news) {
+                newsList.add(news);
+            }
+        });
+    }
+}
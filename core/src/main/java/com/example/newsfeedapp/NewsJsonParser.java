@@ -0,0 +1,133 @@
+package com.example.newsfeedapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser for Guardian search responses. Reads {@code response.results[]} straight from
+ * the response stream and hands out one {@link News} at a time, skipping the fields the app
+ * doesn't use, so the payload is never held in memory as a whole.
+ */
+public class NewsJsonParser {
+
+    /**
+     * Byline shown for articles that don't name their author
+     */
+    static final String UNKNOWN_AUTHOR = "Unknown author";
+
+    /**
+     * Receives the {@link News} objects in the order they appear in the response.
+     */
+    public interface Listener {
+        void onNews(News news);
+    }
+
+    private NewsJsonParser() {
+    }
+
+    /**
+     * Parse the search response from the reader, passing each article to the listener
+     * as soon as it has been read.
+     *
+     * @throws IOException           if the stream can't be read or is not valid JSON
+     * @throws IllegalStateException if the JSON doesn't have the shape of a search response
+     */
+    static void parse(Reader in, Listener listener) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("response".equals(reader.nextName())) {
+                readResponse(reader, listener);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readResponse(JsonReader reader, Listener listener) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    listener.onNews(readNews(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static News readNews(JsonReader reader) throws IOException {
+        String sectionName = null;
+        long webPublicationTime = PublicationTime.UNKNOWN;
+        String webTitle = null;
+        String webUrl = null;
+        String trailText = null;
+        String byline = null;
+        String thumbnail = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sectionName":
+                    sectionName = nextStringOrNull(reader);
+                    break;
+                case "webPublicationDate":
+                    // Parsed once here rather than each time the news is shown
+                    webPublicationTime = PublicationTime.parse(nextStringOrNull(reader));
+                    break;
+                case "webTitle":
+                    webTitle = nextStringOrNull(reader);
+                    break;
+                case "webUrl":
+                    webUrl = nextStringOrNull(reader);
+                    break;
+                case "fields":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "trailText":
+                                trailText = nextStringOrNull(reader);
+                                break;
+                            case "byline":
+                                byline = nextStringOrNull(reader);
+                                break;
+                            case "thumbnail":
+                                thumbnail = nextStringOrNull(reader);
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Byline, missing for articles without a named author
+        if (byline == null) {
+            byline = UNKNOWN_AUTHOR;
+        }
+
+        // Thumbnail url stays null when missing, the row then hides its image
+        return new News(thumbnail, webTitle, trailText, byline, sectionName, webPublicationTime, webUrl);
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.newsfeedapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Parses the publication dates of the Guardian API once, when the news are read, and formats
+ * them for the feed. {@link SimpleDateFormat} is neither cheap to create nor thread-safe, so
+ * each thread reuses its own formatters.
+ */
+public final class PublicationTime {
+
+    /**
+     * Publication time of news whose date is missing or can't be parsed
+     */
+    public static final long UNKNOWN = 0;
+
+    /**
+     * News younger than this are labelled with their age instead of their time, 1 day
+     */
+    static final long RELATIVE_LABEL_MILLIS = 24 * 60 * 60 * 1000;
+
+    private static final ThreadLocal<SimpleDateFormat> ISO_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            // The API gives UTC times
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("MMM dd ''yy", Locale.US);
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> TIME_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("h:mm a", Locale.US);
+        }
+    };
+
+    private static final ThreadLocal<Date> DATE = new ThreadLocal<Date>() {
+        @Override
+        protected Date initialValue() {
+            return new Date();
+        }
+    };
+
+    private PublicationTime() {
+    }
+
+    /**
+     * Return the epoch millis of an ISO 8601 date of the API (i.e. "2020-02-01T00:38:53Z"),
+     * or {@link #UNKNOWN} if there is none.
+     */
+    public static long parse(String date) {
+        if (date == null) {
+            return UNKNOWN;
+        }
+        try {
+            return ISO_FORMAT.get().parse(date).getTime();
+        } catch (ParseException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Return the time as an ISO 8601 date of the API.
+     */
+    public static String toIsoString(long time) {
+        return format(ISO_FORMAT.get(), time);
+    }
+
+    /**
+     * Return a formatted date string (i.e. "Mar 03 '18") in the time zone of the device.
+     */
+    public static String formatDate(long time) {
+        return time == UNKNOWN ? "" : format(DATE_FORMAT.get(), time);
+    }
+
+    /**
+     * Return a formatted time string (i.e. "4:30 PM") in the time zone of the device.
+     */
+    public static String formatTime(long time) {
+        return time == UNKNOWN ? "" : format(TIME_FORMAT.get(), time);
+    }
+
+    /**
+     * Return whether the news is recent enough to be labelled with its age (i.e. "5 min ago").
+     */
+    public static boolean isRecent(long time, long now) {
+        return time != UNKNOWN && now - time < RELATIVE_LABEL_MILLIS;
+    }
+
+    private static String format(SimpleDateFormat format, long time) {
+        // The formatters only read the date, so one per thread is reused too
+        Date date = DATE.get();
+        date.setTime(time);
+        return format.format(date);
+    }
+}
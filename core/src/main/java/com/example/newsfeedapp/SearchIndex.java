@@ -0,0 +1,267 @@
+package com.example.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the title, trail text, byline and section of {@link News}, answering
+ * searches without a network round-trip. Every word of a query has to match; the last word
+ * also matches as a prefix, so the index can be searched as the user types.
+ * <p>
+ * Articles are keyed by their url: indexing an article again replaces its earlier copy, and
+ * articles no longer stored are removed. Removed articles leave a gap in the postings until
+ * they outnumber the indexed ones, when the index is built again.
+ * <p>
+ * Not thread-safe, callers synchronize.
+ */
+public class SearchIndex {
+
+    /**
+     * How much a match in each field counts towards the rank of an article
+     */
+    static final int WEIGHT_TITLE = 4;
+    static final int WEIGHT_SECTION = 2;
+    static final int WEIGHT_BYLINE = 2;
+    static final int WEIGHT_TRAIL_TEXT = 1;
+
+    // Indexed news by id, null where a news was removed
+    private final List<News> mDocuments = new ArrayList<>();
+    private final Map<String, Integer> mIdsByUrl = new HashMap<>();
+    // Sorted, so the words starting with a prefix are one range of the map
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+    private int mRemovedCount;
+
+    /**
+     * The articles a word occurs in, in the order they were indexed, and how much it counts
+     * in each of them.
+     */
+    private static class Postings {
+        int[] mIds = new int[4];
+        int[] mWeights = new int[4];
+        int mSize;
+
+        void add(int id, int weight) {
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+                mWeights = Arrays.copyOf(mWeights, mSize * 2);
+            }
+            mIds[mSize] = id;
+            mWeights[mSize] = weight;
+            mSize++;
+        }
+    }
+
+    /**
+     * Index the news, each replacing the news indexed under the same url.
+     */
+    public void addAll(List<News> news) {
+        for (News item : news) {
+            add(item);
+        }
+        compactIfSparse();
+    }
+
+    public void add(News news) {
+        String url = news.getWebUrl();
+        Integer existing = url != null ? mIdsByUrl.get(url) : null;
+        if (existing != null) {
+            // Its words may have changed, it is indexed anew
+            removeId(existing);
+        }
+        int id = mDocuments.size();
+        mDocuments.add(news);
+        if (url != null) {
+            mIdsByUrl.put(url, id);
+        }
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        addTokens(weights, news.getWebTitle(), WEIGHT_TITLE);
+        addTokens(weights, news.getSectionName(), WEIGHT_SECTION);
+        addTokens(weights, news.getByline(), WEIGHT_BYLINE);
+        addTokens(weights, news.getTrailText(), WEIGHT_TRAIL_TEXT);
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Postings postings = mPostings.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(entry.getKey(), postings);
+            }
+            postings.add(id, entry.getValue());
+        }
+    }
+
+    /**
+     * Remove the news indexed under the url, if any.
+     */
+    public void remove(String url) {
+        Integer id = mIdsByUrl.get(url);
+        if (id != null) {
+            removeId(id);
+            compactIfSparse();
+        }
+    }
+
+    /**
+     * Remove every news whose url is not one of the given ones, e.g. the news no longer stored.
+     */
+    public void retainAll(Collection<String> urls) {
+        for (int id = 0; id < mDocuments.size(); id++) {
+            News news = mDocuments.get(id);
+            if (news != null && (news.getWebUrl() == null || !urls.contains(news.getWebUrl()))) {
+                removeId(id);
+            }
+        }
+        compactIfSparse();
+    }
+
+    private void removeId(int id) {
+        News news = mDocuments.set(id, null);
+        if (news.getWebUrl() != null) {
+            mIdsByUrl.remove(news.getWebUrl());
+        }
+        mRemovedCount++;
+    }
+
+    /**
+     * Build the index again from the news still in it, once the removed news outnumber them.
+     */
+    private void compactIfSparse() {
+        if (mRemovedCount <= mDocuments.size() - mRemovedCount) {
+            return;
+        }
+        List<News> live = new ArrayList<>(mDocuments.size() - mRemovedCount);
+        for (News news : mDocuments) {
+            if (news != null) {
+                live.add(news);
+            }
+        }
+        mDocuments.clear();
+        mIdsByUrl.clear();
+        mPostings.clear();
+        mRemovedCount = 0;
+        addAll(live);
+    }
+
+    /**
+     * Return the number of news indexed.
+     */
+    public int size() {
+        return mDocuments.size() - mRemovedCount;
+    }
+
+    /**
+     * Return the news matching every word of the query, best matches first and newest first
+     * among equal matches.
+     *
+     * @param query text typed by the user
+     * @param limit maximum number of news returned
+     */
+    public List<News> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // A word still being typed is a prefix
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        int count = mDocuments.size();
+        int[] matched = new int[count];
+        final int[] scores = new int[count];
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (i == tokens.size() - 1 && lastIsPrefix) {
+                SortedMap<String, Postings> range = mPostings.subMap(token, token + Character.MAX_VALUE);
+                for (Postings postings : range.values()) {
+                    match(postings, i, matched, scores);
+                }
+            } else {
+                Postings postings = mPostings.get(token);
+                if (postings == null) {
+                    return Collections.emptyList();
+                }
+                match(postings, i, matched, scores);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            if (matched[id] == tokens.size() && mDocuments.get(id) != null) {
+                ids.add(id);
+            }
+        }
+        Collections.sort(ids, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                if (scores[first] != scores[second]) {
+                    return scores[first] > scores[second] ? -1 : 1;
+                }
+                return FeedMerger.NEWEST_FIRST.compare(mDocuments.get(first), mDocuments.get(second));
+            }
+        });
+        List<News> results = new ArrayList<>(Math.min(limit, ids.size()));
+        for (int i = 0; i < ids.size() && i < limit; i++) {
+            results.add(mDocuments.get(ids.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Count the articles of the postings as matching the word at the given index of the
+     * query, once per article even if several words with the prefix occur in it.
+     */
+    private static void match(Postings postings, int tokenIndex, int[] matched, int[] scores) {
+        for (int i = 0; i < postings.mSize; i++) {
+            int id = postings.mIds[i];
+            if (matched[id] == tokenIndex) {
+                matched[id] = tokenIndex + 1;
+            }
+            if (matched[id] == tokenIndex + 1) {
+                scores[id] += postings.mWeights[i];
+            }
+        }
+    }
+
+    private static void addTokens(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            Integer current = weights.get(token);
+            weights.put(token, current == null ? weight : current + weight);
+        }
+    }
+
+    /**
+     * Split the text into lower case words, leaving out the HTML tags of the trail text.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        boolean inTag = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c == '<') {
+                inTag = true;
+            } else if (c == '>' && inTag) {
+                inTag = false;
+                continue;
+            }
+            if (!inTag && Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString().toLowerCase(Locale.US));
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.newsfeedapp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of the values that repeat across news, like section names and bylines, so every
+ * news holding the same value shares one string instead of each holding the copy it was
+ * parsed or read into. The dictionary is bounded, and starts over once full: the strings
+ * handed out before stay shared, only later copies of them are not.
+ */
+public final class StringPool {
+
+    /**
+     * Distinct values held at most, a few per section and reporter of the feed
+     */
+    static final int MAX_ENTRIES = 4096;
+
+    private static final Map<String, String> sPool = new HashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * Return the string of the pool equal to the value, adding the value if there is none.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (sPool) {
+            String pooled = sPool.get(value);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (sPool.size() >= MAX_ENTRIES) {
+                sPool.clear();
+            }
+            sPool.put(value, value);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.newsfeedapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FanOutTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Answers after a delay, or as soon as it is cancelled.
+     */
+    private static class DelayedTask implements FanOut.Task<String> {
+        private final long mDelayMillis;
+        private final String mValue;
+        private final CountDownLatch mCancelled = new CountDownLatch(1);
+
+        DelayedTask(long delayMillis, String value) {
+            this.mDelayMillis = delayMillis;
+            this.mValue = value;
+        }
+
+        @Override
+        public String call() throws Exception {
+            if (mCancelled.await(mDelayMillis, TimeUnit.MILLISECONDS)) {
+                throw new InterruptedException("cancelled");
+            }
+            return mValue;
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled.countDown();
+        }
+    }
+
+    @Test
+    public void run_reportsResultsAsTheyFinish() throws InterruptedException {
+        Map<String, DelayedTask> tasks = new LinkedHashMap<>();
+        tasks.put("slow", new DelayedTask(300, "slow"));
+        tasks.put("fast", new DelayedTask(10, "fast"));
+        tasks.put("medium", new DelayedTask(100, "medium"));
+
+        final List<String> order = new ArrayList<>();
+        List<String> unfinished = new FanOut<String, String>(mExecutor).run(tasks, 5000, new FanOut.Listener<String, String>() {
+            @Override
+            public void onResult(String key, String value, long millis) {
+                order.add(value);
+            }
+        });
+
+        assertTrue(unfinished.isEmpty());
+        assertEquals("fast", order.get(0));
+        assertEquals("medium", order.get(1));
+        assertEquals("slow", order.get(2));
+    }
+
+    @Test
+    public void run_cancelsTasksPastTimeout() throws InterruptedException {
+        Map<String, DelayedTask> tasks = new LinkedHashMap<>();
+        tasks.put("fast", new DelayedTask(10, "fast"));
+        DelayedTask stalled = new DelayedTask(60000, "stalled");
+        tasks.put("stalled", stalled);
+
+        final List<String> results = new ArrayList<>();
+        long start = System.nanoTime();
+        List<String> unfinished = new FanOut<String, String>(mExecutor).run(tasks, 200, new FanOut.Listener<String, String>() {
+            @Override
+            public void onResult(String key, String value, long millis) {
+                results.add(value);
+            }
+        });
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(1, results.size());
+        assertEquals("stalled", unfinished.get(0));
+        assertEquals(0, stalled.mCancelled.getCount());
+        assertTrue("took " + millis + " ms", millis < 2000);
+    }
+
+    @Test
+    public void run_reportsFailedTasks() throws InterruptedException {
+        Map<String, FanOut.Task<String>> tasks = new LinkedHashMap<>();
+        tasks.put("failing", new FanOut.Task<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new java.io.IOException("no route to host");
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        final String[] value = {"unset"};
+        new FanOut<String, String>(mExecutor).run(tasks, 1000, new FanOut.Listener<String, String>() {
+            @Override
+            public void onResult(String key, String result, long millis) {
+                value[0] = result;
+            }
+        });
+        assertNull(value[0]);
+    }
+}
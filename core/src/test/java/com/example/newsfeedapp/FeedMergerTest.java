@@ -0,0 +1,48 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeedMergerTest {
+
+    private static News news(String url, long time) {
+        return new News(null, url, "", "", "", time, "https://www.theguardian.com/" + url);
+    }
+
+    @Test
+    public void add_keepsNewestFirst() {
+        FeedMerger merger = new FeedMerger();
+        merger.add(Arrays.asList(news("a", 50), news("b", 30), news("c", 10)));
+        List<News> merged = merger.add(Arrays.asList(news("d", 20), news("e", 60), news("f", 40)));
+
+        assertEquals(6, merged.size());
+        long previous = Long.MAX_VALUE;
+        for (News item : merged) {
+            assertEquals(true, item.getWebPublicationTime() <= previous);
+            previous = item.getWebPublicationTime();
+        }
+        assertEquals("e", merged.get(0).getWebTitle());
+        assertEquals("c", merged.get(5).getWebTitle());
+    }
+
+    @Test
+    public void add_skipsArticlesOfOtherQueries() {
+        FeedMerger merger = new FeedMerger();
+        merger.add(Arrays.asList(news("a", 50), news("b", 30)));
+        List<News> merged = merger.add(Arrays.asList(news("b", 30), news("c", 40)));
+        assertEquals(3, merged.size());
+    }
+
+    @Test
+    public void add_leavesEarlierSnapshotsAlone() {
+        FeedMerger merger = new FeedMerger();
+        List<News> first = merger.add(Arrays.asList(news("a", 50)));
+        merger.add(Arrays.asList(news("b", 60)));
+        assertEquals(1, first.size());
+        assertEquals(2, merger.getNews().size());
+    }
+}
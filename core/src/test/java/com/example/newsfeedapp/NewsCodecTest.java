@@ -0,0 +1,137 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NewsCodecTest {
+
+    private static byte[] encode(long fetchedAt, List<News> news) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        NewsCodec.write(fetchedAt, news, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static List<News> articles(int count) {
+        List<News> news = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            news.add(new News("https://media.guim.co.uk/" + i + "/500.jpg", "Title of article " + i,
+                    "Trail text of article " + i + " with <strong>markup</strong>", "Reporter " + (i % 7),
+                    "World news", 1580517533000L - i * 60000L, "https://www.theguardian.com/world/" + i));
+        }
+        return news;
+    }
+
+    @Test
+    public void read_returnsWrittenNews() throws IOException {
+        List<News> news = articles(3);
+        NewsCodec.Snapshot snapshot = NewsCodec.read(ByteBuffer.wrap(encode(42L, news)));
+        assertEquals(42L, snapshot.getFetchedAt());
+        assertEquals(news, snapshot.getNews());
+    }
+
+    @Test
+    public void read_keepsNullAndUnicodeFields() throws IOException {
+        // A title longer than one varint byte, and characters of several UTF-8 lengths
+        char[] title = new char[300];
+        Arrays.fill(title, 'é');
+        News news = new News(null, new String(title), "", null, "Culture – 🎵", 0L, "https://www.theguardian.com/x");
+        News read = NewsCodec.read(ByteBuffer.wrap(encode(0L, Arrays.asList(news)))).getNews().get(0);
+        assertNull(read.getThumbnailUrl());
+        assertNull(read.getByline());
+        assertEquals("", read.getTrailText());
+        assertEquals(news, read);
+    }
+
+    @Test
+    public void read_fromDirectBuffer() throws IOException {
+        // Mapped files are direct buffers, with no array behind them
+        byte[] bytes = encode(7L, articles(20));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        assertEquals(articles(20), NewsCodec.read(buffer).getNews());
+    }
+
+    @Test
+    public void read_rejectsOtherFormatsAndVersions() {
+        byte[] bytes;
+        try {
+            bytes = encode(0L, articles(1));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        byte[] json = "{\"response\":{}}".getBytes(Charset.forName("UTF-8"));
+        assertUnreadable(json);
+        bytes[5]++;
+        assertUnreadable(bytes);
+    }
+
+    @Test
+    public void read_rejectsTruncatedSnapshot() throws IOException {
+        byte[] bytes = encode(0L, articles(10));
+        for (int length : new int[]{0, 10, 18, bytes.length / 2, bytes.length - 1}) {
+            assertUnreadable(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    private static void assertUnreadable(byte[] bytes) {
+        try {
+            NewsCodec.read(ByteBuffer.wrap(bytes));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * The restore and parse times are measured by RestoreBenchmark in the benchmark module.
+     */
+    @Test
+    public void snapshot_smallerThanResponse() throws IOException {
+        List<News> news = articles(500);
+        byte[] snapshot = encode(0L, news);
+        byte[] response = response(news);
+
+        assertEquals(500, NewsCodec.read(ByteBuffer.wrap(snapshot)).getNews().size());
+        List<News> parsed = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(response), parsed);
+        assertEquals(500, parsed.size());
+        assertTrue(snapshot.length < response.length);
+    }
+
+    /**
+     * Return a search response of the Guardian API holding the news.
+     */
+    private static byte[] response(List<News> news) {
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"results\":[");
+        for (int i = 0; i < news.size(); i++) {
+            News item = news.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"world/").append(i).append("\",\"type\":\"article\",\"sectionId\":\"world\",")
+                    .append("\"sectionName\":\"").append(item.getSectionName()).append("\",")
+                    .append("\"webPublicationDate\":\"").append(PublicationTime.toIsoString(item.getWebPublicationTime())).append("\",")
+                    .append("\"webTitle\":\"").append(item.getWebTitle()).append("\",")
+                    .append("\"webUrl\":\"").append(item.getWebUrl()).append("\",")
+                    .append("\"apiUrl\":\"https://content.guardianapis.com/world/").append(i).append("\",")
+                    .append("\"fields\":{\"trailText\":\"").append(item.getTrailText()).append("\",")
+                    .append("\"byline\":\"").append(item.getByline()).append("\",")
+                    .append("\"thumbnail\":\"").append(item.getThumbnailUrl()).append("\"},")
+                    .append("\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+        return json.append("]}}").toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
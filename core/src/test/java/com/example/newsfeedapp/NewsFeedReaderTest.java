@@ -0,0 +1,45 @@
+package com.example.newsfeedapp;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class NewsFeedReaderTest {
+
+    private static final String RESULT = "{\"webTitle\":\"Title\",\"sectionName\":\"World news\","
+            + "\"webPublicationDate\":\"2020-02-01T00:38:53Z\",\"webUrl\":\"https://www.theguardian.com/a\","
+            + "\"fields\":{\"trailText\":\"Trail\",\"byline\":\"Reporter\"}}";
+
+    @Test
+    public void read_addsNewsOfResponse() throws IOException {
+        List<News> news = new ArrayList<>();
+        NewsFeedReader.read(stream("{\"response\":{\"results\":[" + RESULT + "," + RESULT + "]}}"), news);
+        assertEquals(2, news.size());
+        assertEquals("Reporter", news.get(0).getByline());
+        assertEquals(1580517533000L, news.get(0).getWebPublicationTime());
+    }
+
+    @Test
+    public void read_keepsNewsBeforeMalformedPart() throws IOException {
+        List<News> news = new ArrayList<>();
+        try {
+            NewsFeedReader.read(stream("{\"response\":{\"results\":[" + RESULT + ",{\"webTitle\":}"), news);
+            fail();
+        } catch (MalformedJsonException expected) {
+            assertEquals(1, news.size());
+        }
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
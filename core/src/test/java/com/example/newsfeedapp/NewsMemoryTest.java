@@ -0,0 +1,83 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the heap held by 1,000 news parsed from a search response, with the section names
+ * and bylines shared through the {@link StringPool} and in the shape news had before, each
+ * with copies of its own. The heap is walked with JOL, so the sizes are those of the objects
+ * on the running JVM and do not depend on the garbage collector.
+ */
+public class NewsMemoryTest {
+
+    private static final int COUNT = 1000;
+    private static final String[] SECTIONS = {"World news", "UK news", "Politics", "Football", "Business",
+            "Environment", "Technology", "Culture", "Opinion", "Sport"};
+
+    @Test
+    public void news_shareSectionNamesAndBylines() {
+        News first = new News(null, "First", "", new String("Reporter"), new String("World news"), 0L, "a");
+        News second = new News(null, "Second", "", new String("Reporter"), new String("World news"), 0L, "b");
+        assertSame(first.getByline(), second.getByline());
+        assertSame(first.getSectionName(), second.getSectionName());
+    }
+
+    @Test
+    public void sharedStrings_shrinkThousandNews() throws Exception {
+        List<News> news = new ArrayList<>();
+        NewsFeedReader.read(new ByteArrayInputStream(response().getBytes(Charset.forName("UTF-8"))), news);
+        long compactBytes = GraphLayout.parseInstance(news.toArray()).totalSize();
+
+        // The same news holding the copies of their byline and section name the parser made
+        Field byline = News.class.getDeclaredField("byline");
+        Field sectionName = News.class.getDeclaredField("sectionName");
+        byline.setAccessible(true);
+        sectionName.setAccessible(true);
+        for (News item : news) {
+            byline.set(item, new String(item.getByline().toCharArray()));
+            sectionName.set(item, new String(item.getSectionName().toCharArray()));
+        }
+        long plainBytes = GraphLayout.parseInstance(news.toArray()).totalSize();
+
+        assertEquals(COUNT, news.size());
+        // Their own copy of the byline and section name is about a fifth of an article
+        assertTrue(compactBytes + " bytes shared, " + plainBytes + " bytes copied",
+                compactBytes < plainBytes * 85 / 100);
+    }
+
+    /**
+     * Return a search response of the Guardian API with {@link #COUNT} results by 60 reporters
+     * and an unknown author, across {@link #SECTIONS}.
+     */
+    private static String response() {
+        StringBuilder json = new StringBuilder("{\"response\":{\"results\":[");
+        for (int i = 0; i < COUNT; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sectionName\":\"").append(SECTIONS[i % SECTIONS.length])
+                    .append("\",\"webPublicationDate\":\"2020-02-01T00:38:53Z\"")
+                    .append(",\"webTitle\":\"Headline of article ").append(i)
+                    .append("\",\"webUrl\":\"https://www.theguardian.com/world/article-").append(i)
+                    .append("\",\"fields\":{\"trailText\":\"<p>Trail text of article ").append(i)
+                    .append(", a sentence or two on what happened</p>\"")
+                    .append(",\"thumbnail\":\"https://media.guim.co.uk/").append(i).append("/500.jpg\"");
+            if (i % 5 != 0) {
+                json.append(",\"byline\":\"Reporter number ").append(i % 60).append('"');
+            }
+            json.append("}}");
+        }
+        return json.append("]}}").toString();
+    }
+}
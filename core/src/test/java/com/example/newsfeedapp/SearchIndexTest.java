@@ -0,0 +1,153 @@
+package com.example.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+
+    private static final String[] WORDS = ("climate election market football vaccine court budget storm "
+            + "minister police school energy film music science space health housing border trade "
+            + "strike museum festival report study ocean forest city council union league final "
+            + "record summit tax bank rail water fire crisis talks deal plan vote poll data").split(" ");
+
+    private static News news(String title, String trailText, String byline, String section, long time, String url) {
+        return new News(null, title, trailText, byline, section, time, "https://www.theguardian.com/" + url);
+    }
+
+    private static SearchIndex index() {
+        SearchIndex index = new SearchIndex();
+        index.addAll(Arrays.asList(
+                news("Climate talks stall in Madrid", "Negotiators fail to agree on <strong>carbon</strong> markets", "Fiona Harvey", "Environment", 30, "a"),
+                news("Markets rally after election", "Investors welcome the climate of certainty", "Larry Elliott", "Business", 20, "b"),
+                news("Football league final", "A record crowd at Wembley", "Barney Ronay", "Sport", 10, "c")));
+        return index;
+    }
+
+    @Test
+    public void search_matchesEveryWord() {
+        SearchIndex index = index();
+        assertEquals(1, index.search("climate talks", 10).size());
+        assertEquals(0, index.search("climate football", 10).size());
+        assertEquals("c", lastPart(index.search("wembley ", 10).get(0)));
+    }
+
+    @Test
+    public void search_ranksTitleMatchesFirst() {
+        List<News> results = index().search("climate", 10);
+        assertEquals(2, results.size());
+        assertEquals("a", lastPart(results.get(0)));
+    }
+
+    @Test
+    public void search_matchesLastWordAsPrefix() {
+        SearchIndex index = index();
+        // "mar" is still being typed: Madrid, markets, Markets
+        assertEquals(2, index.search("mar", 10).size());
+        assertEquals(0, index.search("mar ", 10).size());
+        assertEquals(1, index.search("climate mad", 10).size());
+    }
+
+    @Test
+    public void search_ignoresHtmlTagsAndCase() {
+        SearchIndex index = index();
+        assertEquals(1, index.search("CARBON", 10).size());
+        assertEquals(0, index.search("strong", 10).size());
+    }
+
+    @Test
+    public void add_indexesArticleOnce() {
+        SearchIndex index = index();
+        index.add(news("Climate talks stall in Madrid", "Updated", "Fiona Harvey", "Environment", 40, "a"));
+        assertEquals(3, index.size());
+        assertEquals("Updated", index.search("madrid", 10).get(0).getTrailText());
+    }
+
+    @Test
+    public void add_replacesWordsOfEarlierCopy() {
+        SearchIndex index = index();
+        index.add(news("Climate talks collapse in Madrid", "", "Fiona Harvey", "Environment", 40, "a"));
+        assertEquals(0, index.search("stall", 10).size());
+        assertEquals(1, index.search("collapse", 10).size());
+    }
+
+    @Test
+    public void retainAll_removesNewsNoLongerStored() {
+        SearchIndex index = index();
+        index.retainAll(new HashSet<>(Arrays.asList("https://www.theguardian.com/a", "https://www.theguardian.com/c")));
+        assertEquals(2, index.size());
+        assertEquals(1, index.search("climate", 10).size());
+        assertEquals(0, index.search("elliott", 10).size());
+
+        index.remove("https://www.theguardian.com/c");
+        assertEquals(0, index.search("wembley", 10).size());
+        assertEquals("a", lastPart(index.search("madrid", 10).get(0)));
+    }
+
+    @Test
+    public void retainAll_overManySyncsFindsOnlyStoredNews() {
+        SearchIndex index = new SearchIndex();
+        Set<String> urls = new HashSet<>();
+        for (int sync = 0; sync < 50; sync++) {
+            // Each sync stores the same 20 articles again and drops the oldest
+            List<News> news = new ArrayList<>();
+            urls.clear();
+            for (int i = sync; i < sync + 20; i++) {
+                news.add(news("Article " + i, "", "", "", i, "article-" + i));
+                urls.add("https://www.theguardian.com/article-" + i);
+            }
+            index.addAll(news);
+            index.retainAll(urls);
+        }
+        assertEquals(20, index.size());
+        assertEquals(0, index.search("article 10", 10).size());
+        assertEquals(1, index.search("article 60", 10).size());
+    }
+
+    @Test
+    public void search_staysFastAt10k() {
+        SearchIndex index = new SearchIndex();
+        Random random = new Random(42);
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            news.add(news(sentence(random, 8), sentence(random, 25), "Reporter " + random.nextInt(300),
+                    WORDS[random.nextInt(WORDS.length)], i, "article-" + i));
+        }
+        index.addAll(news);
+
+        String[] queries = {"climate", "climate talks", "election poll data", "foot", "s", "minister housing cr"};
+        for (String query : queries) {
+            // Warm up before measuring
+            for (int i = 0; i < 200; i++) {
+                index.search(query, 50);
+            }
+            int iterations = 200;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                index.search(query, 50);
+            }
+            long micros = (System.nanoTime() - start) / iterations / 1000;
+            assertTrue(micros < 50000);
+        }
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+
+    private static String lastPart(News news) {
+        return news.getWebUrl().substring(news.getWebUrl().lastIndexOf('/') + 1);
+    }
+}